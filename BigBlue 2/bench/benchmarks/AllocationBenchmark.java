@@ -0,0 +1,89 @@
+package benchmarks;
+
+import com.sun.management.ThreadMXBean;
+import edu.usu.graphics.Color;
+import edu.usu.graphics.Graphics2D;
+import edu.usu.graphics.Rectangle;
+import edu.usu.graphics.Triangle;
+import entities.EntityManager;
+import org.joml.Vector2f;
+import org.joml.Vector3f;
+import util.ParseLevel;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * Records a frame's worth of draws for every entity of a generated level, the way
+ * GameplayScreen.render does, and measures how many bytes the recording thread allocates per frame.
+ * Nothing is rendered, so no window is needed: each frame is dropped with Graphics2D.clear().
+ * Once the command buffers have grown to a frame's worth a frame should allocate nothing; exits
+ * with status 1 if it allocates more than a few bytes on average, so it can guard against
+ * regressions.
+ *
+ * Run with: java -cp out:lwjgl-lib/* benchmarks.AllocationBenchmark [size] [frames]
+ */
+public class AllocationBenchmark {
+    private static final int WARMUP = 200;
+    // Allows for the odd allocation made by the JIT or the sampling machinery itself.
+    private static final double MAX_BYTES_PER_FRAME = 64;
+
+    private static final Rectangle BACKGROUND = new Rectangle(-0.5f, -0.5f, 1.0f, 1.0f, -1.0f);
+    private static final Triangle MARKER = new Triangle(
+            new Vector3f(0.0f, -0.1f, 0.0f), new Vector3f(0.1f, 0.1f, 0.0f), new Vector3f(-0.1f, 0.1f, 0.0f));
+    private static final Vector3f ORIGIN = new Vector3f();
+    private static final Vector3f CORNER = new Vector3f(0.5f, 0.5f, 0.0f);
+    private static final Vector2f CENTER = new Vector2f();
+
+    public static void main(String[] args) {
+        int size = args.length > 0 ? Integer.parseInt(args[0]) : 100;
+        int frames = args.length > 1 ? Integer.parseInt(args[1]) : 2000;
+
+        ParseLevel.LevelData level = LevelGenerator.pushChainLevel(size, 10);
+        EntityManager entityManager = new EntityManager();
+        LevelGenerator.populate(entityManager, level);
+
+        Graphics2D graphics = new Graphics2D(1000, 1000, "AllocationBenchmark");
+        ThreadMXBean threads = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long thread = Thread.currentThread().threadId();
+
+        long allocated = 0;
+        long elapsed = 0;
+        for (int frame = 0; frame < WARMUP + frames; frame++) {
+            long bytesBefore = threads.getThreadAllocatedBytes(thread);
+            long begin = System.nanoTime();
+            recordFrame(graphics, entityManager, size);
+            graphics.clear();
+            long frameElapsed = System.nanoTime() - begin;
+            long frameAllocated = threads.getThreadAllocatedBytes(thread) - bytesBefore;
+            if (frame >= WARMUP) {
+                allocated += frameAllocated;
+                elapsed += frameElapsed;
+            }
+        }
+
+        double bytesPerFrame = allocated / (double) frames;
+        System.out.printf("level %dx%d, %d entities, %d frames%n",
+                size, size, entityManager.getEntityCount(), frames);
+        System.out.printf("  recording a frame : %10.3f ms%n", elapsed / (double) frames / 1_000_000.0);
+        System.out.printf("  allocated         : %10.1f bytes/frame%n", bytesPerFrame);
+        if (bytesPerFrame > MAX_BYTES_PER_FRAME) {
+            System.out.printf("  FAILED: more than %.0f bytes/frame%n", MAX_BYTES_PER_FRAME);
+            System.exit(1);
+        }
+    }
+
+    private static void recordFrame(Graphics2D graphics, EntityManager entityManager, int size) {
+        float tileWidth = 1.0f / size;
+        float tileHeight = 1.0f / size;
+        graphics.draw(BACKGROUND, Color.BLACK);
+        for (int slot = 0; slot < entityManager.getEntityCount(); slot++) {
+            if (!entityManager.hasPositionAt(slot)) continue;
+            float left = -0.5f + entityManager.getXAt(slot) * tileWidth;
+            float top = -0.5f + entityManager.getYAt(slot) * tileHeight;
+            // No texture is bound while recording, so the sprite itself can be left out.
+            graphics.draw(null, left, top, tileWidth, tileHeight, 0.0f, null, Color.WHITE);
+        }
+        graphics.draw(MARKER, 0.5f, CENTER, Color.YELLOW);
+        graphics.draw(ORIGIN, CORNER, Color.RED);
+    }
+}
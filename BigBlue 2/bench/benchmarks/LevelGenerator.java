@@ -0,0 +1,100 @@
+package benchmarks;
+
+import components.NameComponent;
+import components.PositionComponent;
+import components.RuleComponent;
+import entities.EntityManager;
+import util.ParseLevel;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/** Builds large synthetic levels in the same character format as levels-all.bbiy. */
+public class LevelGenerator {
+    private static final Map<Character, String> NAMES = new HashMap<>();
+    static {
+        NAMES.put('h', "Hedge");
+        NAMES.put('w', "Wall");
+        NAMES.put('r', "Rock");
+        NAMES.put('b', "BigBlue");
+        NAMES.put('f', "Flag");
+        NAMES.put('l', "Floor");
+        NAMES.put('g', "Grass");
+        NAMES.put('a', "Water");
+        NAMES.put('v', "Lava");
+        NAMES.put('W', "Wall");
+        NAMES.put('R', "Rock");
+        NAMES.put('F', "Flag");
+        NAMES.put('B', "BigBlue");
+        NAMES.put('I', "Is");
+        NAMES.put('S', "Stop");
+        NAMES.put('P', "Push");
+        NAMES.put('V', "Lava");
+        NAMES.put('A', "Water");
+        NAMES.put('Y', "You");
+        NAMES.put('X', "Win");
+        NAMES.put('N', "Sink");
+        NAMES.put('K', "Kill");
+    }
+
+    /**
+     * A hedge-bordered level with BigBlue at the left end of a horizontal chain of rocks, floor
+     * under every other tile, and "BigBlue Is You" / "Rock Is Push" in the top-left corner.
+     */
+    public static ParseLevel.LevelData pushChainLevel(int size, int chainLength) {
+        char[][] gameplay = new char[size][size];
+        char[][] rules = new char[size][size];
+        for (int y = 0; y < size; y++) {
+            Arrays.fill(gameplay[y], 'l');
+            Arrays.fill(rules[y], ' ');
+            gameplay[y][0] = 'h';
+            gameplay[y][size - 1] = 'h';
+        }
+        Arrays.fill(gameplay[0], 'h');
+        Arrays.fill(gameplay[size - 1], 'h');
+
+        int row = size / 2;
+        gameplay[row][1] = 'b';
+        for (int x = 2; x < 2 + chainLength && x < size - 2; x++) {
+            gameplay[row][x] = 'r';
+        }
+        placeRule(rules, 2, 2, "BIY");
+        placeRule(rules, 2, 3, "RIP");
+        return new ParseLevel.LevelData("generated-push-chain", size, size, gameplay, rules);
+    }
+
+    /** Creates position, name and rule components for every character in the level. */
+    public static void populate(EntityManager entityManager, ParseLevel.LevelData level) {
+        entityManager.clear();
+        entityManager.setGridSize(level.width, level.height);
+        for (int y = 0; y < level.height; y++) {
+            for (int x = 0; x < level.width; x++) {
+                create(entityManager, level.gameplayLayer[y][x], x, y);
+                create(entityManager, level.ruleLayer[y][x], x, y);
+            }
+        }
+    }
+
+    private static void create(EntityManager entityManager, char c, int x, int y) {
+        String name = NAMES.get(c);
+        if (name == null) return;
+        int id = entityManager.createEntity();
+        entityManager.addComponent(id, new PositionComponent(x, y));
+        entityManager.addComponent(id, new NameComponent(name));
+        if (Character.isUpperCase(c)) {
+            RuleComponent.Type type = switch (name) {
+                case "Is" -> RuleComponent.Type.OPERATOR;
+                case "Push", "Stop", "Win", "You", "Sink", "Kill" -> RuleComponent.Type.PROPERTY;
+                default -> RuleComponent.Type.SUBJECT;
+            };
+            entityManager.addComponent(id, new RuleComponent(name, type));
+        }
+    }
+
+    private static void placeRule(char[][] rules, int x, int y, String text) {
+        for (int i = 0; i < text.length(); i++) {
+            rules[y][x + i] = text.charAt(i);
+        }
+    }
+}
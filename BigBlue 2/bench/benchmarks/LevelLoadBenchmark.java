@@ -0,0 +1,172 @@
+package benchmarks;
+
+import edu.usu.graphics.Texture;
+import entities.EntityManager;
+import org.lwjgl.opengl.GL;
+import simulation.Simulation;
+import systems.AnimationCache;
+import systems.TextureCache;
+import util.ParseLevel;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.lwjgl.glfw.GLFW.*;
+import static org.lwjgl.system.MemoryUtil.NULL;
+
+/**
+ * Times loading the shipped level with the most entities and giving every entity its sprite, first
+ * the way GameplayScreen used to (each entity's sheet decoded, cut into temp PNGs and each frame
+ * decoded again into a texture of its own) and then through the shared sheet caches.  Needs a
+ * display for its hidden GL window.
+ *
+ * Run with: java -cp out:lwjgl-lib/* benchmarks.LevelLoadBenchmark [levelFile] [runs]
+ */
+public class LevelLoadBenchmark {
+    private static final String IMAGES = "resources/images/";
+
+    public static void main(String[] args) {
+        String levelFile = args.length > 0 ? args[0] : "resources/Levels/levels-all.bbiy";
+        int runs = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+
+        ParseLevel.LevelData level = largestLevel(new ParseLevel().parseLevels(levelFile));
+        long window = createHiddenWindow();
+        try {
+            // The first round of each warms up ImageIO, stb_image and the driver.
+            double legacyMs = 0;
+            double cachedMs = 0;
+            int legacyTextures = 0;
+            int cachedTextures = 0;
+            for (int run = 0; run <= runs; run++) {
+                long begin = System.nanoTime();
+                List<Texture> textures = loadLegacy(level);
+                long legacyElapsed = System.nanoTime() - begin;
+                legacyTextures = textures.size();
+                for (Texture texture : textures) {
+                    texture.cleanup();
+                }
+
+                TextureCache textureCache = new TextureCache();
+                AnimationCache animationCache = new AnimationCache();
+                begin = System.nanoTime();
+                loadCached(level, textureCache, animationCache);
+                long cachedElapsed = System.nanoTime() - begin;
+                cachedTextures = textureCache.size() + animationCache.size();
+                textureCache.cleanup();
+                animationCache.cleanup();
+
+                if (run > 0) {
+                    legacyMs += legacyElapsed / 1_000_000.0 / runs;
+                    cachedMs += cachedElapsed / 1_000_000.0 / runs;
+                }
+            }
+            System.out.printf("%s, %dx%d%n", level.name, level.width, level.height);
+            System.out.printf("  per-entity temp-file frames : %10.1f ms %6d textures%n", legacyMs, legacyTextures);
+            System.out.printf("  shared in-memory sheets     : %10.1f ms %6d textures%n", cachedMs, cachedTextures);
+            System.out.printf("  speedup                     : %10.1fx%n", legacyMs / cachedMs);
+        } finally {
+            glfwDestroyWindow(window);
+            glfwTerminate();
+        }
+    }
+
+    private static ParseLevel.LevelData largestLevel(List<ParseLevel.LevelData> levels) {
+        ParseLevel.LevelData largest = null;
+        int mostEntities = -1;
+        for (ParseLevel.LevelData level : levels) {
+            Simulation simulation = new Simulation();
+            simulation.load(level);
+            int entities = simulation.getEntityManager().getEntityCount();
+            if (entities > mostEntities) {
+                mostEntities = entities;
+                largest = level;
+            }
+        }
+        return largest;
+    }
+
+    private static List<Texture> loadLegacy(ParseLevel.LevelData level) {
+        Simulation simulation = new Simulation();
+        simulation.load(level);
+        EntityManager entityManager = simulation.getEntityManager();
+        List<Texture> textures = new ArrayList<>();
+        for (int slot = 0; slot < entityManager.getEntityCount(); slot++) {
+            String name = entityManager.getEntityName(entityManager.getEntityIdAt(slot));
+            if (name == null) continue;
+            String path = spritePath(entityManager, slot);
+            if (name.equals("BigBlue")) {
+                textures.add(new Texture(path));
+            } else {
+                sliceToTempFiles(path, 3, textures);
+            }
+        }
+        return textures;
+    }
+
+    private static void loadCached(ParseLevel.LevelData level, TextureCache textureCache, AnimationCache animationCache) {
+        Simulation simulation = new Simulation();
+        simulation.load(level);
+        EntityManager entityManager = simulation.getEntityManager();
+        for (int slot = 0; slot < entityManager.getEntityCount(); slot++) {
+            String name = entityManager.getEntityName(entityManager.getEntityIdAt(slot));
+            if (name == null) continue;
+            String path = spritePath(entityManager, slot);
+            if (name.equals("BigBlue")) {
+                textureCache.acquire(path);
+            } else {
+                animationCache.acquire(path, 3);
+            }
+        }
+    }
+
+    private static String spritePath(EntityManager entityManager, int slot) {
+        String name = entityManager.getEntityName(entityManager.getEntityIdAt(slot));
+        return IMAGES + (entityManager.isTextAt(slot) ? "word-" : "") + name.toLowerCase() + ".png";
+    }
+
+    /** Animation's constructor as it was before sheets were shared, for comparison. */
+    private static void sliceToTempFiles(String path, int totalFrames, List<Texture> textures) {
+        try {
+            BufferedImage spriteSheet = ImageIO.read(new File(path));
+            int frameWidth = spriteSheet.getWidth() / totalFrames;
+            int frameHeight = spriteSheet.getHeight();
+
+            File tempDir = File.createTempFile("animation_frames_", "");
+            tempDir.delete();
+            tempDir.mkdir();
+
+            for (int i = 0; i < totalFrames; i++) {
+                BufferedImage frameImage = spriteSheet.getSubimage(i * frameWidth, 0, frameWidth, frameHeight);
+                File frameFile = new File(tempDir, "frame_" + i + ".png");
+                ImageIO.write(frameImage, "png", frameFile);
+                textures.add(new Texture(frameFile.getAbsolutePath()));
+                frameFile.delete();
+            }
+            tempDir.delete();
+        } catch (Exception e) {
+            throw new RuntimeException("Sprite sheet [" + path + "] not loaded", e);
+        }
+    }
+
+    private static long createHiddenWindow() {
+        if (!glfwInit()) {
+            throw new IllegalStateException("Unable to initialize GLFW");
+        }
+        glfwDefaultWindowHints();
+        glfwWindowHint(GLFW_VISIBLE, GLFW_FALSE);
+        glfwWindowHint(GLFW_CONTEXT_VERSION_MAJOR, 3);
+        glfwWindowHint(GLFW_CONTEXT_VERSION_MINOR, 2);
+        glfwWindowHint(GLFW_OPENGL_PROFILE, GLFW_OPENGL_CORE_PROFILE);
+        glfwWindowHint(GLFW_OPENGL_FORWARD_COMPAT, GLFW_TRUE);
+        long window = glfwCreateWindow(64, 64, "LevelLoadBenchmark", NULL, NULL);
+        if (window == NULL) {
+            throw new RuntimeException("Failed to create the GLFW window");
+        }
+        glfwMakeContextCurrent(window);
+        GL.createCapabilities();
+        return window;
+    }
+}
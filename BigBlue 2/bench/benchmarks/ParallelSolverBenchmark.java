@@ -0,0 +1,89 @@
+package benchmarks;
+
+import solver.ParallelSolver;
+import solver.SolverResult;
+import util.ParseLevel;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.util.List;
+
+/**
+ * Solves every level at once with the parallel solver at 1, 2, 4, ... threads up to the machine's
+ * core count (or maxThreads), and reports states/sec, peak heap and the speedup over one thread.
+ * An untimed round warms the JIT up first, so the one-thread baseline is not also the cold start,
+ * and each thread count is then timed runs times, keeping the fastest.
+ *
+ * Run with: java -Xmx4g -cp out:lwjgl-lib/* benchmarks.ParallelSolverBenchmark [levelFile] [maxStates] [maxThreads] [runs]
+ */
+public class ParallelSolverBenchmark {
+    public static void main(String[] args) {
+        String levelFile = args.length > 0 ? args[0] : "resources/Levels/levels-all.bbiy";
+        int maxStates = args.length > 1 ? Integer.parseInt(args[1]) : 2_000_000;
+        List<ParseLevel.LevelData> levels = new ParseLevel().parseLevels(levelFile);
+        int cores = Runtime.getRuntime().availableProcessors();
+        int maxThreads = args.length > 2 ? Integer.parseInt(args[2]) : cores;
+        int runs = args.length > 3 ? Integer.parseInt(args[3]) : 3;
+
+        System.out.printf("%d levels, up to %d states each, %d cores, best of %d runs%n", levels.size(), maxStates, cores, runs);
+        List<SolverResult> warmup;
+        try (ParallelSolver solver = new ParallelSolver(200, maxStates, maxThreads)) {
+            warmup = solver.solveAll(levels);
+        }
+        for (int i = 0; i < levels.size(); i++) {
+            SolverResult result = warmup.get(i);
+            System.out.printf("    %-24s %-24s %s%n", levels.get(i).name, result.status,
+                    result.moves == null ? "" : result.moves.size() + " moves");
+        }
+
+        System.out.printf("%8s %10s %12s %14s %12s %9s%n", "threads", "seconds", "states", "states/sec", "peak MB", "speedup");
+        double baseline = 0;
+        for (int threads = 1; threads <= maxThreads; threads = threads < maxThreads ? Math.min(threads * 2, maxThreads) : maxThreads + 1) {
+            double seconds = Double.MAX_VALUE;
+            long states = 0;
+            long peak = 0;
+            for (int run = 0; run < runs; run++) {
+                System.gc();
+                resetPeakHeap();
+                long begin = System.nanoTime();
+                List<SolverResult> results;
+                try (ParallelSolver solver = new ParallelSolver(200, maxStates, threads)) {
+                    results = solver.solveAll(levels);
+                }
+                double elapsed = (System.nanoTime() - begin) / 1_000_000_000.0;
+                peak = Math.max(peak, peakHeap());
+                if (elapsed < seconds) {
+                    seconds = elapsed;
+                    states = 0;
+                    for (SolverResult result : results) {
+                        states += result.statesSeen;
+                    }
+                }
+            }
+            if (threads == 1) {
+                baseline = seconds;
+            }
+            System.out.printf("%8d %10.2f %12d %14.0f %12.1f %8.2fx%n",
+                    threads, seconds, states, states / seconds, peak / (1024.0 * 1024.0), baseline / seconds);
+        }
+    }
+
+    private static void resetPeakHeap() {
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                pool.resetPeakUsage();
+            }
+        }
+    }
+
+    private static long peakHeap() {
+        long peak = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                peak += pool.getPeakUsage().getUsed();
+            }
+        }
+        return peak;
+    }
+}
@@ -0,0 +1,141 @@
+package benchmarks;
+
+import com.sun.management.ThreadMXBean;
+import edu.usu.graphics.Color;
+import edu.usu.graphics.Graphics2D;
+import edu.usu.graphics.Rectangle;
+import systems.ParticlePool;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Times updating and recording the draws of 100,000 particles a frame, first as the objects
+ * ParticleEmitter used to keep (a Particle, Color and boxed size each, and a Color and Rectangle
+ * made per particle per frame) and then in a ParticlePool.  Particles die and are replaced as they
+ * go, so the count stays the same.  Nothing is rendered, so no window is needed.
+ *
+ * Run with: java -cp out:lwjgl-lib/* benchmarks.ParticleBenchmark [particles] [frames]
+ */
+public class ParticleBenchmark {
+    private static final int WARMUP = 100;
+    private static final double DELTA_TIME = 1 / 60.0;
+
+    public static void main(String[] args) {
+        int particles = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        int frames = args.length > 1 ? Integer.parseInt(args[1]) : 500;
+
+        Graphics2D graphics = new Graphics2D(1000, 1000, "ParticleBenchmark");
+        ThreadMXBean threads = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long thread = Thread.currentThread().threadId();
+
+        Random random = new Random(1);
+        List<LegacyParticle> legacy = new ArrayList<>();
+        while (legacy.size() < particles) {
+            legacy.add(newLegacyParticle(random));
+        }
+        long legacyElapsed = 0;
+        long legacyAllocated = 0;
+        for (int frame = 0; frame < WARMUP + frames; frame++) {
+            long bytesBefore = threads.getThreadAllocatedBytes(thread);
+            long begin = System.nanoTime();
+            Iterator<LegacyParticle> it = legacy.iterator();
+            while (it.hasNext()) {
+                LegacyParticle p = it.next();
+                p.update(DELTA_TIME);
+                if (p.lifetime <= 0) {
+                    it.remove();
+                }
+            }
+            while (legacy.size() < particles) {
+                legacy.add(newLegacyParticle(random));
+            }
+            for (LegacyParticle p : legacy) {
+                Color renderColor = new Color(p.color.r, p.color.g, p.color.b, p.lifetime / p.maxLifetime);
+                float halfSize = p.size / 2;
+                graphics.draw(new Rectangle(p.x - halfSize, p.y - halfSize, p.size, p.size, 0.9f), renderColor);
+            }
+            graphics.clear();
+            if (frame >= WARMUP) {
+                legacyElapsed += System.nanoTime() - begin;
+                legacyAllocated += threads.getThreadAllocatedBytes(thread) - bytesBefore;
+            }
+        }
+        legacy = null;
+
+        random = new Random(1);
+        ParticlePool pool = new ParticlePool(particles);
+        long pooledElapsed = 0;
+        long pooledAllocated = 0;
+        for (int frame = 0; frame < WARMUP + frames; frame++) {
+            long bytesBefore = threads.getThreadAllocatedBytes(thread);
+            long begin = System.nanoTime();
+            pool.update(DELTA_TIME);
+            while (pool.size() < particles) {
+                spawn(pool, random);
+            }
+            pool.render(graphics);
+            graphics.clear();
+            if (frame >= WARMUP) {
+                pooledElapsed += System.nanoTime() - begin;
+                pooledAllocated += threads.getThreadAllocatedBytes(thread) - bytesBefore;
+            }
+        }
+
+        double legacyMs = legacyElapsed / (double) frames / 1_000_000.0;
+        double pooledMs = pooledElapsed / (double) frames / 1_000_000.0;
+        System.out.printf("%d particles, %d frames%n", particles, frames);
+        System.out.printf("  particle objects : %10.3f ms/frame %14.0f bytes/frame%n", legacyMs, legacyAllocated / (double) frames);
+        System.out.printf("  particle pool    : %10.3f ms/frame %14.0f bytes/frame%n", pooledMs, pooledAllocated / (double) frames);
+        System.out.printf("  speedup          : %10.1fx%n", legacyMs / pooledMs);
+    }
+
+    private static LegacyParticle newLegacyParticle(Random random) {
+        LegacyParticle p = new LegacyParticle();
+        p.x = random.nextFloat(-0.5f, 0.5f);
+        p.y = random.nextFloat(-0.5f, 0.5f);
+        p.vx = random.nextFloat(-0.1f, 0.1f);
+        p.vy = random.nextFloat(-0.1f, 0.1f);
+        p.ay = 0.05f;
+        p.color = new Color(random.nextFloat(), random.nextFloat(), random.nextFloat());
+        p.lifetime = random.nextFloat(0.5f, 2.0f);
+        p.maxLifetime = p.lifetime;
+        p.size = random.nextFloat(0.005f, 0.02f);
+        return p;
+    }
+
+    private static void spawn(ParticlePool pool, Random random) {
+        float x = random.nextFloat(-0.5f, 0.5f);
+        float y = random.nextFloat(-0.5f, 0.5f);
+        float vx = random.nextFloat(-0.1f, 0.1f);
+        float vy = random.nextFloat(-0.1f, 0.1f);
+        float r = random.nextFloat();
+        float g = random.nextFloat();
+        float b = random.nextFloat();
+        float lifetime = random.nextFloat(0.5f, 2.0f);
+        float size = random.nextFloat(0.005f, 0.02f);
+        pool.spawn(x, y, vx, vy, 0, 0.05f, r, g, b, 1, lifetime, size, null);
+    }
+
+    /** A particle as ParticleEmitter used to keep them, for comparison. */
+    private static class LegacyParticle {
+        float x, y;
+        float vx, vy;
+        float ax, ay;
+        Color color;
+        float lifetime;
+        float maxLifetime;
+        Float size;
+
+        void update(double deltaTime) {
+            vx += ax * (float) deltaTime;
+            vy += ay * (float) deltaTime;
+            x += vx * (float) deltaTime;
+            y += vy * (float) deltaTime;
+            lifetime -= (float) deltaTime;
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package benchmarks;
+
+import systems.ParticlePool;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Times ParticlePool's update on one thread and in chunks across a ForkJoinPool, for pools of a few
+ * sizes, along with the path update() picks by itself.  Particles that die are replaced after every
+ * update, so each size stays full.
+ *
+ * Run with: java -cp out:lwjgl-lib/* benchmarks.ParticleUpdateBenchmark [threads] [frames]
+ */
+public class ParticleUpdateBenchmark {
+    private static final int[] SIZES = {10_000, 100_000, 250_000};
+    private static final int WARMUP = 200;
+    private static final double DELTA_TIME = 1 / 60.0;
+
+    private interface Update {
+        void run(ParticlePool pool);
+    }
+
+    public static void main(String[] args) {
+        int threads = args.length > 0 ? Integer.parseInt(args[0]) : Runtime.getRuntime().availableProcessors();
+        int frames = args.length > 1 ? Integer.parseInt(args[1]) : 1000;
+
+        ForkJoinPool forkJoinPool = new ForkJoinPool(threads);
+        System.out.printf("%d threads, %d frames%n", threads, frames);
+        for (int size : SIZES) {
+            double scalarMs = time(size, frames, pool -> pool.updateScalar(DELTA_TIME));
+            double parallelMs = time(size, frames, pool -> pool.updateParallel(DELTA_TIME, forkJoinPool));
+            double automaticMs = time(size, frames, pool -> pool.update(DELTA_TIME));
+            System.out.printf("%,d particles%n", size);
+            System.out.printf("  scalar    : %8.3f ms/frame%n", scalarMs);
+            System.out.printf("  parallel  : %8.3f ms/frame  %.1fx%n", parallelMs, scalarMs / parallelMs);
+            System.out.printf("  automatic : %8.3f ms/frame%n", automaticMs);
+        }
+        forkJoinPool.shutdown();
+    }
+
+    private static double time(int size, int frames, Update update) {
+        Random random = new Random(1);
+        ParticlePool pool = new ParticlePool(size);
+        fill(pool, random);
+        long total = 0;
+        for (int frame = 0; frame < WARMUP + frames; frame++) {
+            long begin = System.nanoTime();
+            update.run(pool);
+            long elapsed = System.nanoTime() - begin;
+            fill(pool, random);
+            if (frame >= WARMUP) {
+                total += elapsed;
+            }
+        }
+        return total / (double) frames / 1_000_000.0;
+    }
+
+    private static void fill(ParticlePool pool, Random random) {
+        while (pool.size() < pool.capacity()) {
+            pool.spawn(random.nextFloat(-0.5f, 0.5f), random.nextFloat(-0.5f, 0.5f),
+                    random.nextFloat(-0.1f, 0.1f), random.nextFloat(-0.1f, 0.1f), 0, 0.05f,
+                    1, 1, 1, 1, random.nextFloat(0.5f, 2.0f), 0.01f, null);
+        }
+    }
+}
@@ -0,0 +1,180 @@
+package benchmarks;
+
+import components.PositionComponent;
+import components.RuleComponent;
+import entities.EntityManager;
+import systems.MovementSystem;
+import systems.Property;
+import systems.RuleSystem;
+import util.ParseLevel;
+
+import java.util.*;
+
+/**
+ * Resolves one long push chain on a generated 200x200 level, first with the original
+ * scan-every-entity tile lookup and then with EntityManager's occupancy index.
+ *
+ * Run with: java -cp out:lwjgl-lib/* benchmarks.PushChainBenchmark [size] [chainLength]
+ */
+public class PushChainBenchmark {
+    // The linear scan is several orders of magnitude slower, so it gets far fewer rounds.
+    private static final int LEGACY_WARMUP = 2;
+    private static final int LEGACY_ITERATIONS = 5;
+    private static final int WARMUP = 200;
+    private static final int ITERATIONS = 500;
+
+    public static void main(String[] args) {
+        int size = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+        int chainLength = args.length > 1 ? Integer.parseInt(args[1]) : 150;
+
+        ParseLevel.LevelData level = LevelGenerator.pushChainLevel(size, chainLength);
+        EntityManager entityManager = new EntityManager();
+        LevelGenerator.populate(entityManager, level);
+        RuleSystem ruleSystem = new RuleSystem(entityManager);
+        ruleSystem.update();
+        int entityCount = entityManager.getEntityCount();
+
+        Set<String> pushable = namesWith(entityManager, ruleSystem, Property.PUSH);
+        Set<String> you = namesWith(entityManager, ruleSystem, Property.YOU);
+        Set<String> stop = namesWith(entityManager, ruleSystem, Property.STOP);
+        int player = findPlayer(entityManager);
+        List<int[]> start = snapshotPositions(entityManager);
+
+        MovementSystem indexed = new MovementSystem(entityManager, ruleSystem);
+        LegacyMovement legacy = new LegacyMovement(entityManager, stop);
+
+        double legacyMs = time(() -> {
+            PositionComponent pos = entityManager.getComponent(player, PositionComponent.class);
+            return legacy.tryMove(pos.x, pos.y, 1, 0, pushable, you);
+        }, entityManager, start, LEGACY_WARMUP, LEGACY_ITERATIONS);
+        double indexedMs = time(() -> {
+            PositionComponent pos = entityManager.getComponent(player, PositionComponent.class);
+            return indexed.tryMove(pos.x, pos.y, 1, 0);
+        }, entityManager, start, WARMUP, ITERATIONS);
+
+        System.out.printf("level %dx%d, %d entities, push chain of %d%n", size, size, entityCount, chainLength);
+        System.out.printf("  linear scan     : %10.3f ms/push%n", legacyMs);
+        System.out.printf("  occupancy index : %10.3f ms/push%n", indexedMs);
+        System.out.printf("  speedup         : %10.1fx%n", legacyMs / indexedMs);
+    }
+
+    private interface Push {
+        boolean run();
+    }
+
+    private static double time(Push push, EntityManager entityManager, List<int[]> start, int warmup, int iterations) {
+        long total = 0;
+        for (int i = 0; i < warmup + iterations; i++) {
+            restorePositions(entityManager, start);
+            long begin = System.nanoTime();
+            if (!push.run()) {
+                throw new IllegalStateException("Push chain was blocked");
+            }
+            long elapsed = System.nanoTime() - begin;
+            if (i >= warmup) {
+                total += elapsed;
+            }
+        }
+        restorePositions(entityManager, start);
+        return total / (double) iterations / 1_000_000.0;
+    }
+
+    private static Set<String> namesWith(EntityManager entityManager, RuleSystem ruleSystem, Property property) {
+        Set<String> names = new HashSet<>();
+        for (int nameId = 0; nameId < entityManager.getNameCount(); nameId++) {
+            if (ruleSystem.hasProperty(nameId, property)) {
+                names.add(entityManager.getNameString(nameId));
+            }
+        }
+        return names;
+    }
+
+    private static int findPlayer(EntityManager entityManager) {
+        for (int id : entityManager.getAllEntityIds()) {
+            if ("BigBlue".equals(entityManager.getEntityName(id))
+                    && entityManager.getComponent(id, RuleComponent.class) == null) {
+                return id;
+            }
+        }
+        throw new IllegalStateException("No BigBlue in level");
+    }
+
+    private static List<int[]> snapshotPositions(EntityManager entityManager) {
+        List<int[]> positions = new ArrayList<>();
+        for (int id : entityManager.getAllEntityIds()) {
+            PositionComponent pos = entityManager.getComponent(id, PositionComponent.class);
+            positions.add(new int[] {id, pos.x, pos.y});
+        }
+        return positions;
+    }
+
+    private static void restorePositions(EntityManager entityManager, List<int[]> positions) {
+        for (int[] p : positions) {
+            PositionComponent pos = entityManager.getComponent(p[0], PositionComponent.class);
+            if (pos.x != p[1] || pos.y != p[2]) {
+                entityManager.setPosition(p[0], p[1], p[2]);
+            }
+        }
+    }
+
+    /** MovementSystem's push resolution as it was before the occupancy index, for comparison. */
+    private static class LegacyMovement {
+        private final EntityManager entityManager;
+        private final Set<String> stopNames;
+
+        LegacyMovement(EntityManager entityManager, Set<String> stopNames) {
+            this.entityManager = entityManager;
+            this.stopNames = stopNames;
+        }
+
+        boolean tryMove(int startX, int startY, int dx, int dy, Set<String> pushableNames, Set<String> youNames) {
+            List<Integer> entitiesAtTarget = getEntitiesAt(startX + dx, startY + dy);
+            return resolve(entitiesAtTarget, dx, dy, pushableNames, youNames);
+        }
+
+        private boolean tryPush(int entityId, int dx, int dy, Set<String> pushableNames, Set<String> youNames) {
+            PositionComponent pos = entityManager.getComponent(entityId, PositionComponent.class);
+            int nextX = pos.x + dx;
+            int nextY = pos.y + dy;
+            if (!resolve(getEntitiesAt(nextX, nextY), dx, dy, pushableNames, youNames)) {
+                return false;
+            }
+            entityManager.setPosition(entityId, nextX, nextY);
+            getEntitiesAt(nextX, nextY); // the sink check
+            return true;
+        }
+
+        private boolean resolve(List<Integer> entities, int dx, int dy, Set<String> pushableNames, Set<String> youNames) {
+            for (int id : entities) {
+                String name = entityManager.getEntityName(id);
+                if (name.equals("Hedge")) {
+                    return false;
+                }
+                if (entityManager.getComponent(id, RuleComponent.class) == null) {
+                    if (stopNames.contains(name) && !pushableNames.contains(name)) {
+                        return false;
+                    }
+                }
+            }
+            for (int id : entities) {
+                boolean pushable = entityManager.getComponent(id, RuleComponent.class) != null
+                        || pushableNames.contains(entityManager.getEntityName(id));
+                if (pushable && !tryPush(id, dx, dy, pushableNames, youNames)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private List<Integer> getEntitiesAt(int x, int y) {
+            List<Integer> entities = new ArrayList<>();
+            for (int id : entityManager.getAllEntityIds()) {
+                PositionComponent pos = entityManager.getComponent(id, PositionComponent.class);
+                if (pos != null && pos.x == x && pos.y == y) {
+                    entities.add(id);
+                }
+            }
+            return entities;
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package benchmarks;
+
+import entities.EntityManager;
+import systems.Property;
+import systems.RuleSystem;
+import util.ParseLevel;
+
+/**
+ * Times RuleSystem.update on a generated 200x200 level after one text block moves, once reading
+ * the whole board again and once re-reading only the rows and columns the word touched.
+ *
+ * Run with: java -cp out:lwjgl-lib/* benchmarks.RuleUpdateBenchmark [size]
+ */
+public class RuleUpdateBenchmark {
+    private static final int WARMUP = 200;
+    private static final int ITERATIONS = 1000;
+
+    public static void main(String[] args) {
+        int size = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+
+        ParseLevel.LevelData level = LevelGenerator.pushChainLevel(size, 10);
+        EntityManager entityManager = new EntityManager();
+        LevelGenerator.populate(entityManager, level);
+        RuleSystem incremental = new RuleSystem(entityManager);
+        incremental.update();
+
+        // "Rock Is Push" sits at (2, 3); sliding the "Push" word down a tile breaks the rule and
+        // sliding it back restores it, so every update has a real change to find.
+        int pushWord = findText(entityManager, "Push");
+        int wordX = entityManager.getX(pushWord);
+        int wordY = entityManager.getY(pushWord);
+        int rockName = entityManager.findNameId("Rock");
+
+        long fullTotal = 0;
+        long incrementalTotal = 0;
+        for (int i = 0; i < WARMUP + ITERATIONS; i++) {
+            entityManager.setPosition(pushWord, wordX, (i & 1) == 0 ? wordY + 1 : wordY);
+
+            long begin = System.nanoTime();
+            incremental.update();
+            long incrementalElapsed = System.nanoTime() - begin;
+
+            // A fresh RuleSystem has never seen the board, so its first update reads all of it.
+            RuleSystem full = new RuleSystem(entityManager);
+            begin = System.nanoTime();
+            full.update();
+            long fullElapsed = System.nanoTime() - begin;
+
+            if (full.hasProperty(rockName, Property.PUSH) != incremental.hasProperty(rockName, Property.PUSH)) {
+                throw new IllegalStateException("Incremental rules diverged from a full read");
+            }
+            if (i >= WARMUP) {
+                fullTotal += fullElapsed;
+                incrementalTotal += incrementalElapsed;
+            }
+        }
+
+        double fullMs = fullTotal / (double) ITERATIONS / 1_000_000.0;
+        double incrementalMs = incrementalTotal / (double) ITERATIONS / 1_000_000.0;
+        System.out.printf("level %dx%d, %d entities, one word moved per turn%n",
+                size, size, entityManager.getEntityCount());
+        System.out.printf("  full re-read     : %10.4f ms/update%n", fullMs);
+        System.out.printf("  touched lines    : %10.4f ms/update%n", incrementalMs);
+        System.out.printf("  speedup          : %10.1fx%n", fullMs / incrementalMs);
+    }
+
+    private static int findText(EntityManager entityManager, String word) {
+        for (int slot = 0; slot < entityManager.getEntityCount(); slot++) {
+            if (entityManager.isTextAt(slot) && word.equals(entityManager.getNameString(entityManager.getWordIdAt(slot)))) {
+                return entityManager.getEntityIdAt(slot);
+            }
+        }
+        throw new IllegalStateException("No \"" + word + "\" text in level");
+    }
+}
@@ -0,0 +1,52 @@
+package benchmarks;
+
+import simulation.Direction;
+import simulation.Simulation;
+import util.ParseLevel;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Plays random turns (with the odd undo) on every shipped level and a large generated one through
+ * the headless Simulation, and reports turns per second.
+ *
+ * Run with: java -cp out:lwjgl-lib/* benchmarks.SimulationBenchmark [levelFile] [turns]
+ */
+public class SimulationBenchmark {
+    private static final Direction[] DIRECTIONS = Direction.values();
+
+    public static void main(String[] args) {
+        String levelFile = args.length > 0 ? args[0] : "resources/Levels/levels-all.bbiy";
+        int turns = args.length > 1 ? Integer.parseInt(args[1]) : 200_000;
+
+        List<ParseLevel.LevelData> levels = new ArrayList<>(new ParseLevel().parseLevels(levelFile));
+        levels.add(LevelGenerator.pushChainLevel(200, 150));
+
+        System.out.printf("%-24s %10s %14s%n", "level", "entities", "turns/sec");
+        for (ParseLevel.LevelData level : levels) {
+            Simulation simulation = new Simulation();
+            simulation.load(level);
+            int entityCount = simulation.getEntityManager().getEntityCount();
+            // Turns cost roughly O(entities), so big levels get proportionally fewer of them.
+            int levelTurns = (int) Math.max(1000, Math.min(turns, turns * 200L / entityCount));
+            run(simulation, levelTurns / 10, 1);
+            double seconds = run(simulation, levelTurns, 2);
+            System.out.printf("%-24s %10d %14.0f%n", level.name, entityCount, levelTurns / seconds);
+        }
+    }
+
+    private static double run(Simulation simulation, int turns, long seed) {
+        Random random = new Random(seed);
+        long begin = System.nanoTime();
+        for (int i = 0; i < turns; i++) {
+            if (random.nextInt(5) == 0) {
+                simulation.undo();
+            } else {
+                simulation.step(DIRECTIONS[random.nextInt(DIRECTIONS.length)]);
+            }
+        }
+        return (System.nanoTime() - begin) / 1_000_000_000.0;
+    }
+}
@@ -0,0 +1,34 @@
+package benchmarks.jmh;
+
+import benchmarks.LevelGenerator;
+import util.ParseLevel;
+
+import java.util.List;
+
+/**
+ * The levels the benchmarks run on, by name: a level from levels-all.bbiy, such as "Level-1", or
+ * "generated-N" for an N by N level from LevelGenerator with a push chain half as long.
+ */
+final class BenchmarkLevels {
+    // Benchmarks are run from the project directory, like the game.
+    static final String LEVEL_FILE = "resources/Levels/levels-all.bbiy";
+
+    private static final String GENERATED = "generated-";
+
+    private BenchmarkLevels() {
+    }
+
+    static ParseLevel.LevelData load(String name) {
+        if (name.startsWith(GENERATED)) {
+            int size = Integer.parseInt(name.substring(GENERATED.length()));
+            return LevelGenerator.pushChainLevel(size, size / 2);
+        }
+        List<ParseLevel.LevelData> levels = new ParseLevel().parseLevels(LEVEL_FILE);
+        for (ParseLevel.LevelData level : levels) {
+            if (level.name.equals(name)) {
+                return level;
+            }
+        }
+        throw new IllegalArgumentException("No level named " + name + " in " + LEVEL_FILE);
+    }
+}
@@ -0,0 +1,33 @@
+package benchmarks.jmh;
+
+import org.openjdk.jmh.annotations.*;
+import simulation.Simulation;
+import systems.ConditionSystem;
+
+import java.util.concurrent.TimeUnit;
+
+/** Checking for a win or a loss on a level as it starts. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "--enable-preview")
+public class ConditionSystemBenchmark {
+    @Param({"Level-1", "Level-5", "generated-100", "generated-400"})
+    public String level;
+
+    private ConditionSystem conditionSystem;
+
+    @Setup
+    public void setUp() {
+        Simulation simulation = new Simulation();
+        simulation.load(BenchmarkLevels.load(level));
+        conditionSystem = simulation.getConditionSystem();
+    }
+
+    @Benchmark
+    public int checkConditions() {
+        return conditionSystem.checkConditions();
+    }
+}
@@ -0,0 +1,78 @@
+package benchmarks.jmh;
+
+import edu.usu.graphics.Color;
+import edu.usu.graphics.DrawCommandBuffer;
+import edu.usu.graphics.Graphics2D;
+import entities.EntityManager;
+import org.openjdk.jmh.annotations.*;
+import simulation.Simulation;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The CPU side of drawing a level: recording a textured rectangle per entity into Graphics2D's
+ * command buffers, and sorting translucent rectangles back to front as Graphics2D.end does.  No
+ * window is opened; recorded frames are dropped with clear().
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "--enable-preview")
+public class DrawRecordingBenchmark {
+    @Param({"Level-1", "generated-100", "generated-400"})
+    public String level;
+
+    private Graphics2D graphics;
+    private float[] lefts;
+    private float[] tops;
+    private float tileWidth;
+    private float tileHeight;
+    private DrawCommandBuffer translucent;
+    private float[] depths;
+
+    @Setup
+    public void setUp() {
+        Simulation simulation = new Simulation();
+        simulation.load(BenchmarkLevels.load(level));
+        EntityManager entityManager = simulation.getEntityManager();
+        int count = entityManager.getEntityCount();
+        tileWidth = 1.0f / entityManager.getGridWidth();
+        tileHeight = 1.0f / entityManager.getGridHeight();
+        lefts = new float[count];
+        tops = new float[count];
+        for (int slot = 0; slot < count; slot++) {
+            lefts[slot] = -0.5f + entityManager.getXAt(slot) * tileWidth;
+            tops[slot] = -0.5f + entityManager.getYAt(slot) * tileHeight;
+        }
+        graphics = new Graphics2D(1000, 1000, "DrawRecordingBenchmark");
+
+        Random random = new Random(1);
+        translucent = new DrawCommandBuffer(DrawCommandBuffer.QUAD);
+        depths = new float[count];
+        for (int i = 0; i < count; i++) {
+            depths[i] = random.nextFloat();
+        }
+    }
+
+    @Benchmark
+    public void recordFrame() {
+        for (int i = 0; i < lefts.length; i++) {
+            // No texture is bound while recording, so the sprite itself can be left out.
+            graphics.draw(null, lefts[i], tops[i], tileWidth, tileHeight, 0.5f, null, Color.WHITE);
+        }
+        graphics.clear();
+    }
+
+    @Benchmark
+    public void sortBackToFront() {
+        translucent.clear();
+        for (float depth : depths) {
+            int row = translucent.add(null);
+            translucent.data()[row + DrawCommandBuffer.Z] = depth;
+        }
+        translucent.sortBackToFront();
+    }
+}
@@ -0,0 +1,58 @@
+package benchmarks.jmh;
+
+import components.NameComponent;
+import components.PositionComponent;
+import entities.EntityManager;
+import entities.GameState;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import simulation.Simulation;
+
+import java.util.concurrent.TimeUnit;
+
+/** Looking up every entity's components, and saving and restoring the whole board. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "--enable-preview")
+public class EntityManagerBenchmark {
+    @Param({"Level-1", "Level-5", "generated-100", "generated-400"})
+    public String level;
+
+    private EntityManager entityManager;
+    private int[] ids;
+    private GameState saved;
+
+    @Setup
+    public void setUp() {
+        Simulation simulation = new Simulation();
+        simulation.load(BenchmarkLevels.load(level));
+        entityManager = simulation.getEntityManager();
+        ids = new int[entityManager.getEntityCount()];
+        for (int slot = 0; slot < ids.length; slot++) {
+            ids[slot] = entityManager.getEntityIdAt(slot);
+        }
+        saved = entityManager.saveState();
+    }
+
+    /** A PositionComponent and a NameComponent for every entity. */
+    @Benchmark
+    public void getComponent(Blackhole blackhole) {
+        for (int id : ids) {
+            blackhole.consume(entityManager.getComponent(id, PositionComponent.class));
+            blackhole.consume(entityManager.getComponent(id, NameComponent.class));
+        }
+    }
+
+    @Benchmark
+    public GameState saveState() {
+        return entityManager.saveState();
+    }
+
+    @Benchmark
+    public void restoreState() {
+        entityManager.restoreState(saved);
+    }
+}
@@ -0,0 +1,29 @@
+package benchmarks.jmh;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the JMH benchmarks and writes their results as JSON, to compare one release against the
+ * next, for example at https://jmh.morethan.io.  Run from the project directory, so the benchmarks
+ * find the levels.  IntelliJ fetches JMH for the jmh and jmh-generator-annprocess libraries and runs
+ * its annotation processor when the jmh source folder is built.
+ *
+ * Run with: java --enable-preview -cp out:lwjgl-lib/*:google/*:<jmh-core and its dependencies> benchmarks.jmh.JmhRunner [regex] [results.json]
+ */
+public class JmhRunner {
+    public static void main(String[] args) throws RunnerException {
+        String include = args.length > 0 ? args[0] : JmhRunner.class.getPackageName() + "\\..*Benchmark";
+        String results = args.length > 1 ? args[1] : "jmh-result.json";
+
+        Options options = new OptionsBuilder()
+                .include(include)
+                .resultFormat(ResultFormatType.JSON)
+                .result(results)
+                .build();
+        new Runner(options).run();
+    }
+}
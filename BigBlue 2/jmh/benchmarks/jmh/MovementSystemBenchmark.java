@@ -0,0 +1,54 @@
+package benchmarks.jmh;
+
+import benchmarks.LevelGenerator;
+import entities.EntityManager;
+import org.openjdk.jmh.annotations.*;
+import simulation.Simulation;
+import systems.MovementSystem;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * BigBlue pushing a chain of rocks one tile right on a generated 200x200 level, then pushing it back
+ * from its far end, so every invocation starts from the same board without a per-invocation setup.
+ * Each operation is two pushes of the whole chain.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "--enable-preview")
+public class MovementSystemBenchmark {
+    private static final int SIZE = 200;
+
+    @Param({"10", "150"})
+    public int chainLength;
+
+    private MovementSystem movementSystem;
+    private int playerX;
+    private int playerY;
+    // Just past the end of the chain once it has been pushed right.
+    private int pushBackX;
+
+    @Setup
+    public void setUp() {
+        Simulation simulation = new Simulation();
+        simulation.load(LevelGenerator.pushChainLevel(SIZE, chainLength));
+        EntityManager entityManager = simulation.getEntityManager();
+        movementSystem = new MovementSystem(entityManager, simulation.getRuleSystem());
+        for (int slot = 0; slot < entityManager.getEntityCount(); slot++) {
+            if (simulation.isYou(entityManager.getEntityIdAt(slot))) {
+                playerX = entityManager.getXAt(slot);
+                playerY = entityManager.getYAt(slot);
+            }
+        }
+        pushBackX = playerX + chainLength + 2;
+    }
+
+    @Benchmark
+    public boolean pushAndPushBack() {
+        return movementSystem.tryMove(playerX, playerY, 1, 0)
+                & movementSystem.tryMove(pushBackX, playerY, -1, 0);
+    }
+}
@@ -0,0 +1,29 @@
+package benchmarks.jmh;
+
+import org.openjdk.jmh.annotations.*;
+import util.ParseLevel;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/** Reading and parsing every level in levels-all.bbiy. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "--enable-preview")
+public class ParseLevelBenchmark {
+    // ParseLevel reports a missing file and returns no levels, which would time nothing.
+    @Setup
+    public void checkLevelFile() {
+        if (parseLevels().isEmpty()) {
+            throw new IllegalStateException("No levels in " + BenchmarkLevels.LEVEL_FILE + "; run from the project directory");
+        }
+    }
+
+    @Benchmark
+    public List<ParseLevel.LevelData> parseLevels() {
+        return new ParseLevel().parseLevels(BenchmarkLevels.LEVEL_FILE);
+    }
+}
@@ -0,0 +1,62 @@
+package benchmarks.jmh;
+
+import org.openjdk.jmh.annotations.*;
+import systems.ParticlePool;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ParticlePool's update on one thread and in chunks across a ForkJoinPool, for a full pool of each
+ * size.  Particles live far longer than an iteration's updates add up to, so none die and the pool
+ * stays full without a per-invocation setup; it is refilled between iterations all the same.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "--enable-preview")
+public class ParticlePoolBenchmark {
+    private static final double DELTA_TIME = 1 / 60.0;
+    // Seconds; an iteration runs at most a few hundred thousand updates, a few thousand seconds.
+    private static final float LIFETIME = 1_000_000;
+
+    @Param({"10000", "100000", "250000"})
+    public int size;
+
+    private final Random random = new Random(1);
+    private final ForkJoinPool forkJoinPool = ForkJoinPool.commonPool();
+    private ParticlePool pool;
+
+    @Setup
+    public void setUp() {
+        pool = new ParticlePool(size);
+    }
+
+    @Setup(Level.Iteration)
+    public void fill() {
+        while (pool.size() < pool.capacity()) {
+            pool.spawn(random.nextFloat(-0.5f, 0.5f), random.nextFloat(-0.5f, 0.5f),
+                    random.nextFloat(-0.1f, 0.1f), random.nextFloat(-0.1f, 0.1f), 0, 0.05f,
+                    1, 1, 1, 1, LIFETIME, 0.01f, null);
+        }
+    }
+
+    @Benchmark
+    public void updateScalar() {
+        pool.updateScalar(DELTA_TIME);
+    }
+
+    @Benchmark
+    public void updateParallel() {
+        pool.updateParallel(DELTA_TIME, forkJoinPool);
+    }
+
+    /** Whichever of the two update() picks for the pool. */
+    @Benchmark
+    public void update() {
+        pool.update(DELTA_TIME);
+    }
+}
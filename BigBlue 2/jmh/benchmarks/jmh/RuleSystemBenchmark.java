@@ -0,0 +1,64 @@
+package benchmarks.jmh;
+
+import entities.EntityManager;
+import org.openjdk.jmh.annotations.*;
+import simulation.Simulation;
+import systems.RuleSystem;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * RuleSystem.update after one word moves, and reading a whole board's rules from scratch.  The
+ * "Push" of "Rock Is Push" slides down a tile and back on alternate calls, so every update has a
+ * rule to drop or pick up.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "--enable-preview")
+public class RuleSystemBenchmark {
+    @Param({"generated-100", "generated-400"})
+    public String level;
+
+    private EntityManager entityManager;
+    private RuleSystem ruleSystem;
+    private int pushWord;
+    private int wordX;
+    private int wordY;
+    private boolean moved;
+
+    @Setup
+    public void setUp() {
+        Simulation simulation = new Simulation();
+        simulation.load(BenchmarkLevels.load(level));
+        entityManager = simulation.getEntityManager();
+        ruleSystem = simulation.getRuleSystem();
+        pushWord = findText("Push");
+        wordX = entityManager.getX(pushWord);
+        wordY = entityManager.getY(pushWord);
+    }
+
+    @Benchmark
+    public boolean update() {
+        moved = !moved;
+        entityManager.setPosition(pushWord, wordX, moved ? wordY + 1 : wordY);
+        return ruleSystem.update();
+    }
+
+    /** A fresh RuleSystem has never seen the board, so its first update reads all of it. */
+    @Benchmark
+    public boolean rebuild() {
+        return new RuleSystem(entityManager).update();
+    }
+
+    private int findText(String word) {
+        for (int slot = 0; slot < entityManager.getEntityCount(); slot++) {
+            if (entityManager.isTextAt(slot) && word.equals(entityManager.getNameString(entityManager.getWordIdAt(slot)))) {
+                return entityManager.getEntityIdAt(slot);
+            }
+        }
+        throw new IllegalStateException("No \"" + word + "\" text in level " + level);
+    }
+}
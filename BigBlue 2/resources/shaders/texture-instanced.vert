@@ -0,0 +1,38 @@
+#version 330
+
+// One textured rectangle per instance.  The vertices are the corners of
+// the unit square; each instance places, sizes, textures, turns and
+// animates it.
+layout (location=0) in vec2 corner;
+layout (location=1) in vec4 rectangle;  // left, top, width, height
+layout (location=2) in float z;
+layout (location=3) in vec4 texRect;    // u0, v0, u1, v1
+layout (location=4) in vec4 color;
+layout (location=5) in vec3 rotation;   // angle, then the center it turns about
+layout (location=6) in vec3 animation;  // frames, seconds per frame, u from one frame to the next
+
+uniform mat4 mProjection;
+uniform float time;
+
+out vec2 outTexCoord;
+out vec4 outColor;
+
+void main()
+{
+    vec2 position = rectangle.xy + corner * rectangle.zw;
+    if (rotation.x != 0.0)
+    {
+        float c = cos(rotation.x);
+        float s = sin(rotation.x);
+        vec2 offset = position - rotation.yz;
+        position = rotation.yz + vec2(offset.x * c - offset.y * s, offset.x * s + offset.y * c);
+    }
+    gl_Position = mProjection * vec4(position, z, 1.0);
+    outTexCoord = mix(texRect.xy, texRect.zw, corner);
+    if (animation.x > 1.0)
+    {
+        // Every animation takes its frame from the same clock, so they all change together.
+        outTexCoord.x += mod(floor(time / animation.y), animation.x) * animation.z;
+    }
+    outColor = color;
+}
\ No newline at end of file
@@ -1,12 +1,19 @@
 #version 330
 
 in vec2 outTexCoord;
-in vec3 outColor;
+in vec4 outColor;
 out vec4 fragColor;
 
 uniform sampler2D texSampler;
+uniform float alphaCutoff;
 
 void main()
 {
-    fragColor = texture(texSampler, outTexCoord) * vec4(outColor, 1);
+    fragColor = texture(texSampler, outTexCoord) * outColor;
+    // Discarded texels leave the depth buffer alone, so what is behind shows through
+    // whatever order things are drawn in.
+    if (fragColor.a <= alphaCutoff)
+    {
+        discard;
+    }
 }
@@ -1,13 +1,32 @@
 import edu.usu.graphics.Color;
 import edu.usu.graphics.Graphics2D;
+import profiling.FrameEvent;
+import profiling.Profiler;
+import profiling.ProfilerOverlay;
 import screens.*;
 import serializer.ControlConfiguration;
 import serializer.Serializer;
+import util.FramePacer;
+
+import java.io.IOException;
+import java.nio.file.Path;
 
 import static org.lwjgl.glfw.GLFW.*;
 
 public class ScreenManager {
+    // The screens are updated at 60 steps a second whatever the frame rate.
+    private static final double UPDATE_STEP = 1.0 / 60.0;
+    // A frame that took longer than this, such as one held up by a level load, counts as this long,
+    // so the screens are not stepped many times over to catch up.
+    private static final double MAX_FRAME_TIME = 0.25;
+    // Written when the game shuts down.
+    private static final Path PROFILE_CSV = Path.of("profile.csv");
     private final Graphics2D graphics;
+    // Waits for nothing until setFrameRate is called; until then v-sync alone paces the frames.
+    private final FramePacer framePacer = new FramePacer(0);
+    private final Profiler profiler = new Profiler();
+    private final ProfilerOverlay profilerOverlay = new ProfilerOverlay(profiler);
+    private boolean overlayKeyDown;
     private Screen currentScreen;
     private final Serializer serializer;
     ControlConfiguration controlConfiguration = new ControlConfiguration();
@@ -29,7 +48,7 @@ public class ScreenManager {
         MenuScreen levelSelectionScreen = new MenuScreen(graphics);
         MenuScreen controlsScreen = new MenuScreen(graphics);
         serializer.loadControls(controlConfiguration);
-        GameplayScreen gameplayScreen = new GameplayScreen(graphics, levelSelectionScreen, controlConfiguration);
+        GameplayScreen gameplayScreen = new GameplayScreen(graphics, levelSelectionScreen, controlConfiguration, profiler);
         MenuScreen creditsScreen = new MenuScreen(graphics);
         mainMenu.addButtons(0.2f, new MenuScreen.ButtonBundle[] {
           new MenuScreen.ButtonBundle("Play", MenuButton.makeCreator((_) -> {
@@ -88,45 +107,104 @@ public class ScreenManager {
         gameplayScreen.forceAction(GLFW_KEY_ESCAPE, (_) -> {gameplayScreen.setNextScreen(pauseMenu); gameplayScreen.pauseMusic();});
     }
 
+    /**
+     * Runs the game until the window closes.  The screens are updated in fixed steps of UPDATE_STEP
+     * however fast frames are drawn, as many steps each frame as the time since the last one covers,
+     * and the time left over is handed to the screen to draw ahead by.  Frames are held to the
+     * display's refresh by v-sync, or, after setFrameRate, by the frame pacer alone, which sleeps
+     * until the next frame is due rather than spinning.
+     *
+     * Every part of a frame is timed into the profiler, whose overlay F3 shows and hides; the frame
+     * time it shows is the work done, without the wait for the next frame.  Each frame is also a JFR
+     * FrameEvent, for lining stutters up with GC and I/O in a recording.
+     */
     public void run() {
         double lastTime = glfwGetTime();
-        final double targetFPS = 60.0;
-        final double secondsPerFrame = 1.0 / targetFPS;
+        double accumulator = 0;
+        framePacer.reset();
         while (!graphics.shouldClose()) {
+            FrameEvent frame = FrameEvent.isRecording() ? new FrameEvent() : null;
+            if (frame != null) {
+                frame.begin();
+            }
+            profiler.beginFrame();
             double currentTime = glfwGetTime();
-            double elapsedTime = currentTime - lastTime;
-            if (elapsedTime >= secondsPerFrame) {
-                lastTime = currentTime;
-                processInput();
-                update(elapsedTime);
-                render();
+            accumulator += Math.min(currentTime - lastTime, MAX_FRAME_TIME);
+            lastTime = currentTime;
+            processInput();
+            int updates = 0;
+            while (accumulator >= UPDATE_STEP) {
+                update(UPDATE_STEP);
+                accumulator -= UPDATE_STEP;
+                updates++;
             }
+            render(accumulator);
+            profiler.endFrame();
+            if (frame != null && frame.shouldCommit()) {
+                frame.updates = updates;
+                frame.drawCalls = graphics.getDrawCallCount();
+                frame.commit();
+            }
+            framePacer.waitForNextFrame();
         }
         System.out.println("System exiting...");
     }
 
+    /**
+     * Frames per second to draw at instead of the display's refresh rate, or 0 to draw as fast as
+     * possible, for measuring.  V-sync is turned off either way, so frames never wait on both it and
+     * the pacer.  The screens are updated at the same rate whatever the frame rate.
+     */
+    public void setFrameRate(double framesPerSecond) {
+        framePacer.setFrameRate(framesPerSecond);
+        graphics.setVSync(false);
+    }
+
     public void shutdown() {
         serializer.saveControls(controlConfiguration);
         serializer.shutdown();
+        try {
+            profiler.writeCsv(PROFILE_CSV);
+        } catch (IOException e) {
+            System.err.println("Profile not written to " + PROFILE_CSV + ": " + e.getMessage());
+        }
     }
 
     private void processInput() {
+        long start = profiler.start();
         glfwPollEvents();
+        boolean overlayKey = glfwGetKey(graphics.getWindow(), GLFW_KEY_F3) == GLFW_PRESS;
+        if (overlayKey && !overlayKeyDown) {
+            profilerOverlay.toggle();
+        }
+        overlayKeyDown = overlayKey;
         currentScreen.processInput();
+        profiler.end(Profiler.Section.INPUT, start);
     }
 
-    private void update(Double elapsedTime) {
+    private void update(double elapsedTime) {
+        long start = profiler.start();
         currentScreen.update(elapsedTime);
         if (currentScreen.changeScreen()) {
             currentScreen = currentScreen.getNextScreen();
             currentScreen.setLoadValues();
         }
+        profilerOverlay.update(elapsedTime);
+        profiler.end(Profiler.Section.UPDATE, start);
     }
 
-    private void render() {
+    private void render(double timeSinceUpdate) {
+        long start = profiler.start();
         graphics.begin();
         graphics.draw(Screen.screenRectangle, Color.BLACK);
+        currentScreen.setTimeSinceUpdate(timeSinceUpdate);
         currentScreen.render();
+        profilerOverlay.render(graphics, Screen.screenRectangle.left, Screen.screenRectangle.top);
+        profiler.end(Profiler.Section.RENDER, start);
+
+        start = profiler.start();
         graphics.end();
+        profiler.end(Profiler.Section.GRAPHICS_END, start);
+        profiler.count(Profiler.Counter.DRAW_CALLS, graphics.getDrawCallCount());
     }
 }
@@ -13,6 +13,14 @@ public class StarterProject {
             ScreenManager game = new ScreenManager(graphics);
             glfwSetErrorCallback((_, _) -> {game.shutdown();});
             game.initialize();
+            // --fps <rate> draws at another frame rate, and --uncapped as fast as possible.
+            for (int i = 0; i < args.length; i++) {
+                if (args[i].equals("--uncapped")) {
+                    game.setFrameRate(0);
+                } else if (args[i].equals("--fps") && i + 1 < args.length) {
+                    game.setFrameRate(Double.parseDouble(args[++i]));
+                }
+            }
             game.run();
             game.shutdown();
         } catch (Exception e) {
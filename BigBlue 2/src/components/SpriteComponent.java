@@ -1,16 +1,24 @@
 package components;
 
+import edu.usu.graphics.Rectangle;
 import edu.usu.graphics.Texture;
 import systems.Animation;
 
 public class SpriteComponent extends Component implements Cloneable {
     private Texture texture;
+    private Rectangle subImage;
     private Animation animation;
     private String texturePath;
     private int zIndex;
 
     public SpriteComponent(Texture texture, String texturePath) {
+        this(texture, null, texturePath);
+    }
+
+    /** A still sprite showing only subImage (in pixels) of texture, e.g. its region of an atlas. */
+    public SpriteComponent(Texture texture, Rectangle subImage, String texturePath) {
         this.texture = texture;
+        this.subImage = subImage;
         this.texturePath = texturePath;
         this.zIndex = zIndex;
     }
@@ -28,23 +36,29 @@ public class SpriteComponent extends Component implements Cloneable {
 
     public Texture getTexture() {
         if (animation != null) {
-            return animation.getCurrentTexture();
+            return animation.getTexture();
         } else {
             return texture;
         }
     }
 
+    /** The part of getTexture() to draw, or null for all of it.  For an animation, its first frame. */
+    public Rectangle getSubImage() {
+        return animation != null ? animation.getFirstFrame() : subImage;
+    }
+
+    /** The animation the sprite plays, or null for a still sprite. */
+    public Animation getAnimation() {
+        return animation;
+    }
+
     public String getTexturePath() {
         return texturePath;
     }
 
-    public void update() {
-        if (animation != null) {
-            animation.update();
-        }
-    }
     public void setTexture(Texture texture, String texturePath) {
         this.texture = texture;
+        this.subImage = null;
         this.animation = null;
         this.texturePath = texturePath;
     }
@@ -61,7 +75,7 @@ public class SpriteComponent extends Component implements Cloneable {
         if (animation != null) {
             clone = new SpriteComponent(animation.clone(), texturePath);
         } else {
-            clone = new SpriteComponent(texture, texturePath);
+            clone = new SpriteComponent(texture, subImage, texturePath);
         }
         return clone;
     }
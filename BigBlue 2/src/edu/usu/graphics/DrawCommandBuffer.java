@@ -0,0 +1,183 @@
+package edu.usu.graphics;
+
+import java.util.Arrays;
+
+/**
+ * The primitives drawn during a frame, packed as rows of floats in one growing array (with the
+ * texture of each row alongside) so that recording a draw allocates nothing once the array has
+ * grown to a frame's worth.  Graphics2D appends rows and Graphics2DUtils reads them back in end().
+ *
+ * Rows are QUAD, TRIANGLE or LINE floats wide depending on what the buffer holds; the constants
+ * below give the position of each field within a row.
+ */
+public class DrawCommandBuffer {
+    // A rectangle, textured or not.  u/v are normalized texture coordinates, and the quad turns
+    // by rotation radians about (centerX, centerY) before it is drawn.  An animated one shows
+    // frames frames in turn, each frameDuration seconds and frameStep further right in the texture
+    // than the last; with fewer than two frames it is still.
+    public static final int LEFT = 0;
+    public static final int TOP = 1;
+    public static final int WIDTH = 2;
+    public static final int HEIGHT = 3;
+    public static final int Z = 4;
+    public static final int U0 = 5;
+    public static final int V0 = 6;
+    public static final int U1 = 7;
+    public static final int V1 = 8;
+    public static final int RED = 9;
+    public static final int GREEN = 10;
+    public static final int BLUE = 11;
+    public static final int ALPHA = 12;
+    public static final int ROTATION = 13;
+    public static final int CENTER_X = 14;
+    public static final int CENTER_Y = 15;
+    public static final int FRAMES = 16;
+    public static final int FRAME_DURATION = 17;
+    public static final int FRAME_STEP = 18;
+    public static final int QUAD = 19;
+
+    // A triangle as three already-rotated points followed by its color, and a line as two points
+    // followed by its color.
+    public static final int TRIANGLE = 3 * 3 + 3;
+    public static final int LINE = 2 * 3 + 3;
+
+    private final int stride;
+    private float[] data;
+    private Texture[] textures;
+    private int size = 0;
+
+    // Reordering writes the rows here and then swaps the arrays; the rest is bookkeeping for it.
+    private float[] scratchData = new float[0];
+    private Texture[] scratchTextures = new Texture[0];
+    private long[] keys = new long[0];
+    private Texture[] groupTextures = new Texture[8];
+    private int[] groupStarts = new int[8];
+
+    public DrawCommandBuffer(int stride) {
+        this.stride = stride;
+        this.data = new float[64 * stride];
+        this.textures = new Texture[64];
+    }
+
+    /** Starts a new row drawn with texture (null for none) and returns the index of its first float. */
+    public int add(Texture texture) {
+        if (size == textures.length) {
+            data = Arrays.copyOf(data, data.length * 2);
+            textures = Arrays.copyOf(textures, textures.length * 2);
+        }
+        textures[size] = texture;
+        return stride * size++;
+    }
+
+    /** The packed rows; row i starts at i * stride. */
+    public float[] data() {
+        return data;
+    }
+
+    public Texture getTexture(int row) {
+        return textures[row];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Reorders the rows so those with the same texture are together, keeping their order otherwise,
+     * so each texture takes one draw call.  Only for primitives the depth buffer puts in order.
+     */
+    public void groupByTexture() {
+        ensureScratch();
+        int groups = 0;
+        int runs = 0;
+        for (int row = 0; row < size; row++) {
+            Texture texture = textures[row];
+            if (row == 0 || texture != textures[row - 1]) {
+                runs++;
+            }
+            int group = 0;
+            while (group < groups && groupTextures[group] != texture) {
+                group++;
+            }
+            if (group == groups) {
+                if (groups == groupTextures.length) {
+                    groupTextures = Arrays.copyOf(groupTextures, groups * 2);
+                    groupStarts = Arrays.copyOf(groupStarts, groups * 2);
+                }
+                groupTextures[groups] = texture;
+                groupStarts[groups++] = 0;
+            }
+            groupStarts[group]++;
+            keys[row] = group;
+        }
+        if (runs > groups) {
+            // Counts become the index each group's rows start at.
+            int start = 0;
+            for (int group = 0; group < groups; group++) {
+                int count = groupStarts[group];
+                groupStarts[group] = start;
+                start += count;
+            }
+            for (int row = 0; row < size; row++) {
+                moveRow(row, groupStarts[(int) keys[row]]++);
+            }
+            swapScratch();
+        }
+        Arrays.fill(groupTextures, 0, groups, null);
+    }
+
+    /** Reorders the rows farthest first, by z, keeping the order of rows at the same depth. */
+    public void sortBackToFront() {
+        ensureScratch();
+        boolean sorted = true;
+        for (int row = 0; row < size; row++) {
+            // Flipping the magnitude bits of negative floats makes their bits order like the floats.
+            int depth = Float.floatToIntBits(data[row * stride + Z]);
+            depth ^= (depth >> 31) & 0x7fffffff;
+            keys[row] = ((long) depth << 32) | row;
+            sorted &= row == 0 || keys[row - 1] < keys[row];
+        }
+        if (!sorted) {
+            Arrays.sort(keys, 0, size);
+            for (int row = 0; row < size; row++) {
+                moveRow((int) keys[row], row);
+            }
+            swapScratch();
+        }
+    }
+
+    public void clear() {
+        // Drop the texture references so a released texture is not kept reachable.
+        Arrays.fill(textures, 0, size, null);
+        size = 0;
+    }
+
+    private void ensureScratch() {
+        if (scratchData.length < data.length) {
+            scratchData = new float[data.length];
+            scratchTextures = new Texture[textures.length];
+        }
+        if (keys.length < size) {
+            keys = new long[textures.length];
+        }
+    }
+
+    private void moveRow(int from, int to) {
+        System.arraycopy(data, from * stride, scratchData, to * stride, stride);
+        scratchTextures[to] = textures[from];
+    }
+
+    private void swapScratch() {
+        float[] swapData = data;
+        data = scratchData;
+        scratchData = swapData;
+        Texture[] swapTextures = textures;
+        textures = scratchTextures;
+        scratchTextures = swapTextures;
+        Arrays.fill(scratchTextures, 0, size, null);
+    }
+}
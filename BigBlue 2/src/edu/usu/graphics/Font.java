@@ -21,14 +21,11 @@ THE SOFTWARE.
 */
 package edu.usu.graphics;
 
-import edu.usu.utils.Tuple7;
-import org.joml.Matrix4f;
 import org.joml.Vector2f;
 
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.InputStream;
-import java.util.ArrayList;
 
 public class Font {
     private FontTexture texture;
@@ -73,57 +70,37 @@ public class Font {
         return (height / texture.getHeight()) * totalWidth;
     }
 
-    public ArrayList<Tuple7<Texture, Rectangle, Vector2f, Vector2f, Vector2f, Vector2f, Matrix4f>> drawText(String text, float left, float top, float width, float z) {
-        Matrix4f mIdentity = new Matrix4f();
-        mIdentity.identity();
-
-        return drawText(text, left, top, width, z, mIdentity);
-    }
-
-    public ArrayList<Tuple7<Texture, Rectangle, Vector2f, Vector2f, Vector2f, Vector2f, Matrix4f>> drawText(String text, float left, float top, float width, float z, float rotation, Vector2f center) {
-        Matrix4f mRotation = new Matrix4f();
-        mRotation.translate(center.x, center.y, 0);
-        mRotation.rotateZ(rotation);
-        mRotation.translate(-center.x, -center.y, 0);
-
-        return drawText(text, left, top, width, z, mRotation);
-    }
-
-    private ArrayList<Tuple7<Texture, Rectangle, Vector2f, Vector2f, Vector2f, Vector2f, Matrix4f>> drawText(String text, float left, float top, float width, float z, Matrix4f mRotation) {
-        ArrayList<Tuple7<Texture, Rectangle, Vector2f, Vector2f, Vector2f, Vector2f, Matrix4f>> tuples = new ArrayList<>();
-
-        char[] characters = text.toCharArray();
-
+    // --------------------------------------------------------------
+    //
+    // Appends a quad per character of the text to the glyph buffer,
+    // laid out left to right to fill the given width.  Rotation turns
+    // every quad about the same center.
+    //
+    // --------------------------------------------------------------
+    void drawText(DrawCommandBuffer glyphs, String text, float left, float top, float width, float z, float rotation, Vector2f center, Color color) {
         // Step 1: Compute the total width of the characters.  This allows us to compute
         //         a relative width for each character to be rendered
         int totalWidth = 0;
-        for (char c : characters) {
-            totalWidth += texture.getCharInfo(c).getWidth();
+        for (int i = 0; i < text.length(); i++) {
+            totalWidth += texture.getCharInfo(text.charAt(i)).getWidth();
         }
 
         // Step 2: Compute rectangles for each character, along with the texture coordinates
         //         for where to find those characters in the FontTexture
         float currentLeft = left;
-        for (char character : characters) {
-            FontTexture.CharInfo info = texture.getCharInfo(character);
+        for (int i = 0; i < text.length(); i++) {
+            FontTexture.CharInfo info = texture.getCharInfo(text.charAt(i));
 
             // Compute the texture coords for this texture
-            Vector2f v1 = new Vector2f(info.getStartX() / (float) texture.getWidth(), 0.0f);
-            Vector2f v2 = new Vector2f((info.getStartX() + info.getWidth() + FontTexture.CHAR_OFFSET) / (float) texture.getWidth(), 0.0f);
-            Vector2f v3 = new Vector2f((info.getStartX() + info.getWidth() + FontTexture.CHAR_OFFSET) / (float) texture.getWidth(), 1.0f);
-            Vector2f v4 = new Vector2f(info.getStartX() / (float) texture.getWidth(), 1.0f);
+            float u0 = info.getStartX() / (float) texture.getWidth();
+            float u1 = (info.getStartX() + info.getWidth() + FontTexture.CHAR_OFFSET) / (float) texture.getWidth();
 
             // Create a rectangle to render for this character
             float charWidth = (info.getWidth() / (float) totalWidth) * width;
             float charHeight = (texture.getHeight() / (float) totalWidth) * width;
-            Rectangle r = new Rectangle(currentLeft, top, charWidth, charHeight, z);
-
-            tuples.add(new Tuple7<>(texture.getTexture(), r, v1, v2, v3, v4, mRotation));
+            Graphics2D.putQuad(glyphs, texture.getTexture(), currentLeft, top, charWidth, charHeight, z, u0, 0.0f, u1, 1.0f, color, rotation, center);
 
             currentLeft += charWidth;
         }
-
-        return tuples;
     }
-
 }
@@ -21,8 +21,6 @@ THE SOFTWARE.
 */
 package edu.usu.graphics;
 
-import edu.usu.utils.*;
-
 import org.joml.Matrix4f;
 import org.joml.Vector2f;
 import org.joml.Vector3f;
@@ -39,24 +37,30 @@ import static org.lwjgl.opengl.GL32.*;
 import static org.lwjgl.system.MemoryUtil.NULL;
 
 public class Graphics2D  implements AutoCloseable {
+    // Texels of opaque textured rectangles at or below this alpha are not drawn.
+    private static final float OPAQUE_ALPHA = 0.5f;
 
     private final int width;
     private final int height;
     private final String title;
     private long window;
 
-    private final ArrayList<Tuple3<Rectangle, Color, Matrix4f>> rectanglesSolidColor = new ArrayList<>();
-    // TODO: Organize texture rectangles by texture to improve rendering efficiency
-    private final ArrayList<Tuple5<Texture, Rectangle, Rectangle, Matrix4f, Vector3f>> rectanglesTexture = new ArrayList<>();
-    private final ArrayList<Tuple8<Texture, Rectangle, Vector2f, Vector2f, Vector2f, Vector2f, Matrix4f, Vector3f>> textGlyphs = new ArrayList<>();
-    private final ArrayList<Tuple3<Triangle, Color, Matrix4f>> trianglesSolidColor = new ArrayList<>();
-    private final ArrayList<Tuple3<Vector3f, Vector3f, Color>> lines = new ArrayList<>();
+    // Everything drawn this frame, packed so that drawing allocates nothing.
+    private final DrawCommandBuffer rectanglesSolidColor = new DrawCommandBuffer(DrawCommandBuffer.QUAD);
+    private final DrawCommandBuffer rectanglesTexture = new DrawCommandBuffer(DrawCommandBuffer.QUAD);
+    private final DrawCommandBuffer textGlyphs = new DrawCommandBuffer(DrawCommandBuffer.QUAD);
+    private final DrawCommandBuffer trianglesSolidColor = new DrawCommandBuffer(DrawCommandBuffer.TRIANGLE);
+    private final DrawCommandBuffer lines = new DrawCommandBuffer(DrawCommandBuffer.LINE);
+    private final List<InstanceLayer> layers = new ArrayList<>();
+    // Rectangles that are not fully opaque, with or without a texture, drawn after everything else.
+    private final DrawCommandBuffer translucent = new DrawCommandBuffer(DrawCommandBuffer.QUAD);
 
     private Matrix4f mProjection;
-    private Matrix4f mModelIdentity;
     private ShaderProgram shaderSolidColor;
     private ShaderProgram shaderTexture;
     private ShaderProgram shaderFont;
+    private Graphics2DUtils renderer;
+    private int drawCalls;
 
     public Graphics2D(int width, int height, String title) {
         this.width = width;
@@ -97,12 +101,10 @@ public class Graphics2D  implements AutoCloseable {
         float aspectRatio = (float) width / height;
         this.mProjection.setOrtho2D(-1, 1, 1 / aspectRatio, -1 / aspectRatio);
 
-        this.mModelIdentity = new Matrix4f();
-        this.mModelIdentity.identity();
-
         shaderSolidColor = createShader("resources/shaders/solid-color.vert", "resources/shaders/solid-color.frag");
-        shaderTexture = createShader("resources/shaders/texture.vert", "resources/shaders/texture.frag");
-        shaderFont = createShader("resources/shaders/font.vert", "resources/shaders/font.frag");
+        shaderTexture = createShader("resources/shaders/texture-instanced.vert", "resources/shaders/texture.frag");
+        shaderFont = createShader("resources/shaders/texture-instanced.vert", "resources/shaders/font.frag");
+        renderer = new Graphics2DUtils();
 
         // OSX needs this to be done before doing anything else in order for the
         // font rendering to work correctly.
@@ -113,46 +115,78 @@ public class Graphics2D  implements AutoCloseable {
         return glfwWindowShouldClose(window);
     }
 
+    /** The number of draw calls the last end() issued. */
+    public int getDrawCallCount() {
+        return drawCalls;
+    }
+
     public long getWindow() {
         return this.window;
     }
 
+    /** Whether end() waits for the display's refresh before swapping; it does to begin with. */
+    public void setVSync(boolean enabled) {
+        glfwSwapInterval(enabled ? 1 : 0);
+    }
+
     public void begin() {
         glClear(GL_COLOR_BUFFER_BIT | GL_DEPTH_BUFFER_BIT);
         glViewport(0, 0, width, height);
     }
 
     public void end() {
+        drawCalls = 0;
+        renderer.setAnimationTime((float) glfwGetTime());
+
         // Draw the lines
-        Graphics2DUtils.BuffersColor buffersLinesColor = Graphics2DUtils.prepareLinesColorBuffers(lines);
-        Graphics2DUtils.renderLines(mProjection, shaderSolidColor, buffersLinesColor, lines);
+        drawCalls += renderer.renderLines(mProjection, shaderSolidColor, lines);
 
         // Draw the solid colored triangles
-        Graphics2DUtils.BuffersColor buffersTrisSolidColor = Graphics2DUtils.prepareTrisSolidColorBuffers(trianglesSolidColor);
-        Graphics2DUtils.renderTriangles(mProjection, shaderSolidColor, buffersTrisSolidColor, trianglesSolidColor);
+        drawCalls += renderer.renderTriangles(mProjection, shaderSolidColor, trianglesSolidColor);
 
         // Draw the solid colored rectangles
-        Graphics2DUtils.BuffersColor buffersRectsSolidColor = Graphics2DUtils.prepareRectsSolidColorBuffers(rectanglesSolidColor);
-        Graphics2DUtils.renderRectangles(mProjection, shaderSolidColor, buffersRectsSolidColor, rectanglesSolidColor);
-
-        // Draw the textured rectangles
-        Graphics2DUtils.BuffersTexture buffersTexture = Graphics2DUtils.prepareRectsTextureBuffers(rectanglesTexture);
-        Graphics2DUtils.renderRectangles(mProjection, shaderTexture, buffersTexture, rectanglesTexture);
+        drawCalls += renderer.renderRectangles(mProjection, shaderSolidColor, rectanglesSolidColor);
+
+        // Draw the textured rectangles.  Their transparent pixels are discarded and the rest are
+        // written without blending, so the depth buffer alone layers them and they can go in any
+        // order: one draw call per texture.  Sprites that need soft edges belong in the
+        // translucent queue.
+        rectanglesTexture.groupByTexture();
+        glDisable(GL_BLEND);
+        drawCalls += renderer.renderTexturedRectangles(mProjection, shaderTexture, rectanglesTexture, OPAQUE_ALPHA);
+        for (InstanceLayer layer : layers) {
+            drawCalls += renderer.renderLayer(mProjection, shaderTexture, layer, OPAQUE_ALPHA);
+        }
+        glEnable(GL_BLEND);
 
         // Draw the font rectangles
-        Graphics2DUtils.BuffersTexture buffersTextGlyphs = Graphics2DUtils.prepareTextGlyphBuffers(textGlyphs);
-        Graphics2DUtils.renderTextGlyphRectangles(mProjection, shaderFont, buffersTextGlyphs, textGlyphs);
+        drawCalls += renderer.renderTexturedRectangles(mProjection, shaderFont, textGlyphs, 0.0f);
+
+        // Draw the translucent rectangles last, farthest first so each blends over what is
+        // behind it, and without writing depth so they do not hide one another.
+        translucent.sortBackToFront();
+        glDepthMask(false);
+        drawCalls += renderer.renderTexturedRectangles(mProjection, shaderTexture, translucent, 0.0f);
+        glDepthMask(true);
 
+        clear();
+
+        glfwSwapBuffers(window);
+    }
+
+    /** Drops everything drawn since begin() without rendering it. */
+    public void clear() {
         lines.clear();
         trianglesSolidColor.clear();
         rectanglesSolidColor.clear();
         rectanglesTexture.clear();
         textGlyphs.clear();
-
-        glfwSwapBuffers(window);
+        translucent.clear();
+        layers.clear();
     }
 
     public void close() {
+        renderer.cleanup();
         shaderSolidColor.cleanup();
 
         glfwFreeCallbacks(window);
@@ -164,175 +198,171 @@ public class Graphics2D  implements AutoCloseable {
     }
 
     public void draw(Vector3f pt1, Vector3f pt2, Color color) {
-        lines.add(new Tuple3<>(pt1, pt2, color));
+        int i = lines.add(null);
+        float[] data = lines.data();
+        data[i] = pt1.x;
+        data[i + 1] = pt1.y;
+        data[i + 2] = pt1.z;
+        data[i + 3] = pt2.x;
+        data[i + 4] = pt2.y;
+        data[i + 5] = pt2.z;
+        data[i + 6] = color.r;
+        data[i + 7] = color.g;
+        data[i + 8] = color.b;
     }
 
     public void draw(Rectangle destination, Color color) {
-        rectanglesSolidColor.add(new Tuple3<>(destination, color, mModelIdentity));
+        draw(destination, 0, null, color);
     }
 
     public void draw(Triangle triangle, Color color) {
-        trianglesSolidColor.add(new Tuple3<>(triangle, color, mModelIdentity));
+        draw(triangle, 0, null, color);
     }
 
     public void draw(Triangle triangle, float rotation, Vector2f center, Color color) {
-        Matrix4f mRotation = new Matrix4f();
-        mRotation.translate(center.x, center.y, 0);
-        mRotation.rotateZ(rotation);
-        mRotation.translate(-center.x, -center.y, 0);
-        trianglesSolidColor.add(new Tuple3<>(triangle, color, mRotation));
+        int i = trianglesSolidColor.add(null);
+        float[] data = trianglesSolidColor.data();
+        putRotated(data, i, triangle.pt1, rotation, center);
+        putRotated(data, i + 3, triangle.pt2, rotation, center);
+        putRotated(data, i + 6, triangle.pt3, rotation, center);
+        data[i + 9] = color.r;
+        data[i + 10] = color.g;
+        data[i + 11] = color.b;
     }
 
     public void draw(Rectangle destination, float rotation, Vector2f center, Color color) {
-        Matrix4f mRotation = new Matrix4f();
-        mRotation.translate(center.x, center.y, 0);
-        mRotation.rotateZ(rotation);
-        mRotation.translate(-center.x, -center.y, 0);
-        rectanglesSolidColor.add(new Tuple3<>(destination, color, mRotation));
+        putQuad(color.a < 1.0f ? translucent : rectanglesSolidColor, null, destination.left, destination.top, destination.width, destination.height, destination.z,
+                0, 0, 1, 1, color, rotation, center);
     }
 
     public void draw(Texture texture, Rectangle destination, Color color) {
-        rectanglesTexture.add(new Tuple5<>(texture, destination, null, mModelIdentity, new Vector3f(color.r, color.g, color.b)));
+        draw(texture, destination, null, 0, null, color);
+    }
+
+    public void draw(Texture texture, Rectangle destination, Rectangle subImage, Color color) {
+        draw(texture, destination, subImage, 0, null, color);
     }
 
     public void draw(Texture texture, Rectangle destination, float rotation, Vector2f center, Color color) {
-        Matrix4f mRotation = new Matrix4f();
-        mRotation.translate(center.x, center.y, 0);
-        mRotation.rotateZ(rotation);
-        mRotation.translate(-center.x, -center.y, 0);
-        rectanglesTexture.add(new Tuple5<>(texture, destination, null, mRotation, new Vector3f(color.r, color.g, color.b)));
+        draw(texture, destination, null, rotation, center, color);
     }
 
     public void draw(Texture texture, Rectangle destination, Rectangle subImage, float rotation, Vector2f center, Color color) {
-        Matrix4f mRotation = new Matrix4f();
-        mRotation.translate(center.x, center.y, 0);
-        mRotation.rotateZ(rotation);
-        mRotation.translate(-center.x, -center.y, 0);
-        rectanglesTexture.add(new Tuple5<>(texture, destination, subImage, mRotation, new Vector3f(color.r, color.g, color.b)));
+        draw(texture, destination.left, destination.top, destination.width, destination.height, destination.z, subImage, rotation, center, color);
     }
 
-    public void drawTextByWidth(Font font, String text, float left, float top, float width, float z, Color color) {
-        var tuples = font.drawText(text, left, top, width, z);
-        for (var tuple : tuples) {
-            textGlyphs.add(new Tuple8<>(
-                    tuple.item1(),
-                    tuple.item2(),
-                    tuple.item3(),
-                    tuple.item4(),
-                    tuple.item5(),
-                    tuple.item6(),
-                    tuple.item7(), // Rotation
-                    new Vector3f(color.r, color.g, color.b)));
+    /** Draws texture, or subImage (in pixels) of it, without needing a Rectangle for where. */
+    public void draw(Texture texture, float left, float top, float width, float height, float z, Rectangle subImage, Color color) {
+        draw(texture, left, top, width, height, z, subImage, 0, null, color);
+    }
+
+    /** Draws all of texture, or a solid square if it is null, in a color given by its components. */
+    public void draw(Texture texture, float left, float top, float width, float height, float z, float r, float g, float b, float a) {
+        putQuad(a < 1.0f ? translucent : rectanglesTexture, texture, left, top, width, height, z, 0, 0, 1, 1, r, g, b, a, 0, null);
+    }
+
+    private void draw(Texture texture, float left, float top, float width, float height, float z, Rectangle subImage, float rotation, Vector2f center, Color color) {
+        // The sub image is in pixels; it is stored as texture coordinates.
+        float u0 = 0.0f;
+        float v0 = 0.0f;
+        float u1 = 1.0f;
+        float v1 = 1.0f;
+        if (subImage != null) {
+            float textureWidth = texture.getWidth();
+            float textureHeight = texture.getHeight();
+            u0 = subImage.left / textureWidth;
+            v0 = subImage.top / textureHeight;
+            u1 = (subImage.left + subImage.width) / textureWidth;
+            v1 = (subImage.top + subImage.height) / textureHeight;
         }
+        putQuad(color.a < 1.0f ? translucent : rectanglesTexture, texture, left, top, width, height, z, u0, v0, u1, v1, color, rotation, center);
+    }
+
+    /** Draws what the layer holds this frame, uploading only the slots that changed. */
+    public void draw(InstanceLayer layer) {
+        layers.add(layer);
+    }
+
+    public void drawTextByWidth(Font font, String text, float left, float top, float width, float z, Color color) {
+        font.drawText(textGlyphs, text, left, top, width, z, 0, null, color);
     }
 
     public void drawTextByWidth(Font font, String text, float left, float top, float width, Color color) {
-        var tuples = font.drawText(text, left, top,  width, 0.0f);
-        for (var tuple : tuples) {
-            textGlyphs.add(new Tuple8<>(
-                    tuple.item1(),
-                    tuple.item2(),
-                    tuple.item3(),
-                    tuple.item4(),
-                    tuple.item5(),
-                    tuple.item6(),
-                    tuple.item7(), // Rotation
-                    new Vector3f(color.r, color.g, color.b)));
-        }
+        font.drawText(textGlyphs, text, left, top, width, 0.0f, 0, null, color);
     }
 
     public void drawTextByWidth(Font font, String text, float left, float top, float width, float z, float rotation, Vector2f center, Color color) {
-        var tuples = font.drawText(text, left, top, width, z, rotation, center);
-        for (var tuple : tuples) {
-            textGlyphs.add(new Tuple8<>(
-                    tuple.item1(),
-                    tuple.item2(),
-                    tuple.item3(),
-                    tuple.item4(),
-                    tuple.item5(),
-                    tuple.item6(),
-                    tuple.item7(), // Rotation
-                    new Vector3f(color.r, color.g, color.b)));
-        }
+        font.drawText(textGlyphs, text, left, top, width, z, rotation, center, color);
     }
 
     public void drawTextByWidth(Font font, String text, float left, float top, float width, float rotation, Vector2f center, Color color) {
-        var tuples = font.drawText(text, left, top, width, 0.0f, rotation, center);
-        for (var tuple : tuples) {
-            textGlyphs.add(new Tuple8<>(
-                    tuple.item1(),
-                    tuple.item2(),
-                    tuple.item3(),
-                    tuple.item4(),
-                    tuple.item5(),
-                    tuple.item6(),
-                    tuple.item7(), // Rotation
-                    new Vector3f(color.r, color.g, color.b)));
-        }
+        font.drawText(textGlyphs, text, left, top, width, 0.0f, rotation, center, color);
     }
 
     public void drawTextByHeight(Font font, String text, float left, float top, float height, float z, Color color) {
         float width = font.measureTextWidth(text, height);
-        var tuples = font.drawText(text, left, top, width, z);
-        for (var tuple : tuples) {
-            textGlyphs.add(new Tuple8<>(
-                    tuple.item1(),
-                    tuple.item2(),
-                    tuple.item3(),
-                    tuple.item4(),
-                    tuple.item5(),
-                    tuple.item6(),
-                    tuple.item7(), // Rotation
-                    new Vector3f(color.r, color.g, color.b)));
-        }
+        font.drawText(textGlyphs, text, left, top, width, z, 0, null, color);
     }
 
     public void drawTextByHeight(Font font, String text, float left, float top, float height, Color color) {
         float width = font.measureTextWidth(text, height);
-        var tuples = font.drawText(text, left, top, width, 0.0f);
-        for (var tuple : tuples) {
-            textGlyphs.add(new Tuple8<>(
-                    tuple.item1(),
-                    tuple.item2(),
-                    tuple.item3(),
-                    tuple.item4(),
-                    tuple.item5(),
-                    tuple.item6(),
-                    tuple.item7(), // Rotation
-                    new Vector3f(color.r, color.g, color.b)));
-        }
+        font.drawText(textGlyphs, text, left, top, width, 0.0f, 0, null, color);
     }
 
     public void drawTextByHeight(Font font, String text, float left, float top, float height, float z, float rotation, Vector2f center, Color color) {
         float width = font.measureTextWidth(text, height);
-        var tuples = font.drawText(text, left, top, width, z, rotation, center);
-        for (var tuple : tuples) {
-            textGlyphs.add(new Tuple8<>(
-                    tuple.item1(),
-                    tuple.item2(),
-                    tuple.item3(),
-                    tuple.item4(),
-                    tuple.item5(),
-                    tuple.item6(),
-                    tuple.item7(), // Rotation
-                    new Vector3f(color.r, color.g, color.b)));
-        }
+        font.drawText(textGlyphs, text, left, top, width, z, rotation, center, color);
     }
 
     public void drawTextByHeight(Font font, String text, float left, float top, float height, float rotation, Vector2f center, Color color) {
         float width = font.measureTextWidth(text, height);
-        var tuples = font.drawText(text, left, top, width, 0.0f, rotation, center);
-        for (var tuple : tuples) {
-            textGlyphs.add(new Tuple8<>(
-                    tuple.item1(),
-                    tuple.item2(),
-                    tuple.item3(),
-                    tuple.item4(),
-                    tuple.item5(),
-                    tuple.item6(),
-                    tuple.item7(), // Rotation
-                    new Vector3f(color.r, color.g, color.b)));
+        font.drawText(textGlyphs, text, left, top, width, 0.0f, rotation, center, color);
+    }
+
+    /** Appends a quad to commands; rotation turns it about center, which is only read when rotating. */
+    static void putQuad(DrawCommandBuffer commands, Texture texture, float left, float top, float width, float height, float z,
+                        float u0, float v0, float u1, float v1, Color color, float rotation, Vector2f center) {
+        putQuad(commands, texture, left, top, width, height, z, u0, v0, u1, v1, color.r, color.g, color.b, color.a, rotation, center);
+    }
+
+    private static void putQuad(DrawCommandBuffer commands, Texture texture, float left, float top, float width, float height, float z,
+                                float u0, float v0, float u1, float v1, float r, float g, float b, float a, float rotation, Vector2f center) {
+        int i = commands.add(texture);
+        float[] data = commands.data();
+        data[i + DrawCommandBuffer.LEFT] = left;
+        data[i + DrawCommandBuffer.TOP] = top;
+        data[i + DrawCommandBuffer.WIDTH] = width;
+        data[i + DrawCommandBuffer.HEIGHT] = height;
+        data[i + DrawCommandBuffer.Z] = z;
+        data[i + DrawCommandBuffer.U0] = u0;
+        data[i + DrawCommandBuffer.V0] = v0;
+        data[i + DrawCommandBuffer.U1] = u1;
+        data[i + DrawCommandBuffer.V1] = v1;
+        data[i + DrawCommandBuffer.RED] = r;
+        data[i + DrawCommandBuffer.GREEN] = g;
+        data[i + DrawCommandBuffer.BLUE] = b;
+        data[i + DrawCommandBuffer.ALPHA] = a;
+        data[i + DrawCommandBuffer.ROTATION] = rotation;
+        data[i + DrawCommandBuffer.CENTER_X] = rotation != 0 ? center.x : 0;
+        data[i + DrawCommandBuffer.CENTER_Y] = rotation != 0 ? center.y : 0;
+        data[i + DrawCommandBuffer.FRAMES] = 0;
+        data[i + DrawCommandBuffer.FRAME_DURATION] = 0;
+        data[i + DrawCommandBuffer.FRAME_STEP] = 0;
+    }
+
+    private static void putRotated(float[] data, int i, Vector3f point, float rotation, Vector2f center) {
+        if (rotation == 0) {
+            data[i] = point.x;
+            data[i + 1] = point.y;
+        } else {
+            float cos = (float) Math.cos(rotation);
+            float sin = (float) Math.sin(rotation);
+            float x = point.x - center.x;
+            float y = point.y - center.y;
+            data[i] = center.x + x * cos - y * sin;
+            data[i + 1] = center.y + x * sin + y * cos;
         }
+        data[i + 2] = point.z;
     }
 
     private static long prepareWindow(int width, int height, String title) {
@@ -351,7 +381,7 @@ public class Graphics2D  implements AutoCloseable {
         glfwWindowHint(GLFW_RESIZABLE, GLFW_FALSE); // the window will not be resizable
 
         glfwWindowHint(GLFW_CONTEXT_VERSION_MAJOR, 3);
-        glfwWindowHint(GLFW_CONTEXT_VERSION_MINOR, 2);
+        glfwWindowHint(GLFW_CONTEXT_VERSION_MINOR, 3);
         glfwWindowHint(GLFW_OPENGL_PROFILE, GLFW_OPENGL_CORE_PROFILE);
         glfwWindowHint(GLFW_OPENGL_FORWARD_COMPAT, GLFW_TRUE);
 
@@ -21,696 +21,339 @@ THE SOFTWARE.
 */
 package edu.usu.graphics;
 
-import edu.usu.utils.*;
-
 import org.joml.Matrix4f;
-import org.joml.Vector2f;
-import org.joml.Vector3f;
 import org.lwjgl.system.MemoryStack;
 import org.lwjgl.system.MemoryUtil;
 
+import java.nio.ByteBuffer;
 import java.nio.FloatBuffer;
 import java.nio.IntBuffer;
-import java.util.ArrayList;
-import java.util.List;
-
-import static org.lwjgl.opengl.GL32.*;
 
+import static org.lwjgl.opengl.GL33.*;
+import static org.lwjgl.system.MemoryUtil.memPutFloat;
+
+// --------------------------------------------------------------
+//
+// Turns the primitives Graphics2D collected over a frame into draw
+// calls.  All vertex data goes through one StreamBuffer that lives as
+// long as the window: each render method maps the next stretch of it,
+// writes its vertices straight into the mapped memory, and points the
+// vertex attributes at that stretch.  Rectangles share one index
+// buffer of the quad pattern (0, 1, 2, 0, 2, 3, ...), which only
+// changes when a frame has more rectangles than it covers.
+//
+// Textured rectangles are drawn instanced: one unit square, and per
+// instance the rectangle's row of its DrawCommandBuffer copied as is,
+// which the vertex shader turns into the corners.  Solid shapes are
+// still written out vertex by vertex.
+//
+// Primitives come packed in DrawCommandBuffers.  Rotated quads are
+// turned as they are drawn, so consecutive primitives with the same
+// texture go in the same draw call.  Each render method returns how
+// many it made.
+//
+// --------------------------------------------------------------
 public class Graphics2DUtils {
-
-    public static class BuffersColor {
-        public BuffersColor(float[] positions, float[] colors, int[] indices) {
-            this.positions = positions;
-            this.colors = colors;
-            this.indices = indices;
+    // Bytes per solid color vertex (position and color) and per textured rectangle instance.
+    private static final int COLOR_STRIDE = (3 + 3) * Float.BYTES;
+    private static final int INSTANCE_STRIDE = DrawCommandBuffer.QUAD * Float.BYTES;
+    private static final Matrix4f IDENTITY = new Matrix4f();
+
+    private final StreamBuffer vertices = new StreamBuffer(GL_ARRAY_BUFFER, 1 << 20);
+    private final int vaoColor;
+    private final int vaoInstanced;
+    private final int quadIndices;
+    private final int unitQuad;
+    private final int unitQuadIndices;
+    private final Texture white;
+    private float animationTime = 0;
+    private int quadCapacity = 0;
+
+    public Graphics2DUtils() {
+        quadIndices = glGenBuffers();
+        vaoColor = glGenVertexArrays();
+        glBindVertexArray(vaoColor);
+        glEnableVertexAttribArray(0);
+        glEnableVertexAttribArray(1);
+        glBindBuffer(GL_ELEMENT_ARRAY_BUFFER, quadIndices);
+
+        // The unit square's corners, in the order the quad indices expect.
+        unitQuad = glGenBuffers();
+        unitQuadIndices = glGenBuffers();
+        vaoInstanced = glGenVertexArrays();
+        glBindVertexArray(vaoInstanced);
+        glBindBuffer(GL_ARRAY_BUFFER, unitQuad);
+        glBufferData(GL_ARRAY_BUFFER, new float[] {0, 0, 1, 0, 1, 1, 0, 1}, GL_STATIC_DRAW);
+        glEnableVertexAttribArray(0);
+        glVertexAttribPointer(0, 2, GL_FLOAT, false, 0, 0);
+        glBindBuffer(GL_ELEMENT_ARRAY_BUFFER, unitQuadIndices);
+        glBufferData(GL_ELEMENT_ARRAY_BUFFER, new int[] {0, 1, 2, 0, 2, 3}, GL_STATIC_DRAW);
+        for (int attribute = 1; attribute <= 6; attribute++) {
+            glEnableVertexAttribArray(attribute);
+            glVertexAttribDivisor(attribute, 1);
         }
+        glBindBuffer(GL_ARRAY_BUFFER, 0);
+        glBindVertexArray(0);
+        ensureQuadIndices(1024);
 
-        public float[] positions;
-        public float[] colors;
-        public int[] indices;
+        ByteBuffer pixel = MemoryUtil.memAlloc(4).putInt(0, 0xffffffff);
+        white = new Texture(1, 1, pixel);
+        MemoryUtil.memFree(pixel);
     }
 
-    public static class BuffersTexture {
-        public BuffersTexture(float[] positions, float[] coords, int[] indices) {
-            this.positions = positions;
-            this.coords = coords;
-            this.indices = indices;
-        }
-
-        public float[] positions;
-        public float[] coords;
-        public int[] indices;
+    public void cleanup() {
+        vertices.cleanup();
+        glDeleteBuffers(quadIndices);
+        glDeleteBuffers(unitQuad);
+        glDeleteBuffers(unitQuadIndices);
+        glDeleteVertexArrays(vaoColor);
+        glDeleteVertexArrays(vaoInstanced);
+        white.cleanup();
     }
 
-    public static BuffersColor prepareLinesColorBuffers(ArrayList<Tuple3<Vector3f, Vector3f, Color>> lines) {
-        float[] positions = new float[lines.size() * 6];
-        float[] colors = new float[lines.size() * 6];
-        int[] indices = new int[lines.size() * 2];
-
-        int rIndex = 0;
-        int iIndex = 0;
-        for (var l : lines) {
-            positions[rIndex * 3 + 0] = l.item1().x;
-            positions[rIndex * 3 + 1] = l.item1().y;
-            positions[rIndex * 3 + 2] = l.item1().z;
-
-            positions[rIndex * 3 + 3] = l.item2().x;
-            positions[rIndex * 3 + 4] = l.item2().y;
-            positions[rIndex * 3 + 5] = l.item2().z;
-
-            colors[rIndex * 3 + 0] = l.item3().r;
-            colors[rIndex * 3 + 1] = l.item3().g;
-            colors[rIndex * 3 + 2] = l.item3().b;
-
-            colors[rIndex * 3 + 3] = l.item3().r;
-            colors[rIndex * 3 + 4] = l.item3().g;
-            colors[rIndex * 3 + 5] = l.item3().b;
-
-            indices[iIndex + 0] = rIndex + 0;
-            indices[iIndex + 1] = rIndex + 1;
-
-            rIndex += 2;
-            iIndex += 2;
-        }
-
-        return new BuffersColor(positions, colors, indices);
+    /** Sets the clock, in seconds, every animated rectangle drawn after this takes its frame from. */
+    public void setAnimationTime(float seconds) {
+        animationTime = seconds;
     }
 
-    public static BuffersColor prepareTrisSolidColorBuffers(ArrayList<Tuple3<Triangle, Color, Matrix4f>> triangles) {
-        float[] positions = new float[triangles.size() * 9];
-        float[] colors = new float[triangles.size() * 9];
-        int[] indices = new int[triangles.size() * 3];
-
-        int rIndex = 0;
-        int iIndex = 0;
-        for (var t : triangles) {
-            positions[rIndex * 3 + 0] = t.item1().pt1.x;
-            positions[rIndex * 3 + 1] = t.item1().pt1.y;
-            positions[rIndex * 3 + 2] = t.item1().pt1.z;
-
-            positions[rIndex * 3 + 3] = t.item1().pt2.x;
-            positions[rIndex * 3 + 4] = t.item1().pt2.y;
-            positions[rIndex * 3 + 5] = t.item1().pt2.z;
-
-            positions[rIndex * 3 + 6] = t.item1().pt3.x;
-            positions[rIndex * 3 + 7] = t.item1().pt3.y;
-            positions[rIndex * 3 + 8] = t.item1().pt3.z;
-
-            colors[rIndex * 3 + 0] = t.item2().r;
-            colors[rIndex * 3 + 1] = t.item2().g;
-            colors[rIndex * 3 + 2] = t.item2().b;
-
-            colors[rIndex * 3 + 3] = t.item2().r;
-            colors[rIndex * 3 + 4] = t.item2().g;
-            colors[rIndex * 3 + 5] = t.item2().b;
-
-            colors[rIndex * 3 + 6] = t.item2().r;
-            colors[rIndex * 3 + 7] = t.item2().g;
-            colors[rIndex * 3 + 8] = t.item2().b;
-
-            indices[iIndex + 0] = rIndex + 0;
-            indices[iIndex + 1] = rIndex + 1;
-            indices[iIndex + 2] = rIndex + 2;
-
-            rIndex += 3;
-            iIndex += 3;
+    public int renderTriangles(Matrix4f mProjection, ShaderProgram shader, DrawCommandBuffer triangles) {
+        if (triangles.isEmpty()) {
+            return 0;
         }
 
-        return new BuffersColor(positions, colors, indices);
-    }
-
-    public static BuffersColor prepareRectsSolidColorBuffers(ArrayList<Tuple3<Rectangle, Color, Matrix4f>> rectangles) {
-        float[] positions = new float[rectangles.size() * 12];
-        float[] colors = new float[rectangles.size() * 12];
-        int[] indices = new int[rectangles.size() * 6];
-
-        int rIndex = 0;
-        int iIndex = 0;
-        for (var r : rectangles) {
-            positions[rIndex * 3 + 0] = r.item1().left;
-            positions[rIndex * 3 + 1] = r.item1().top;
-            positions[rIndex * 3 + 2] = r.item1().z;
-
-            positions[rIndex * 3 + 3] = r.item1().left + r.item1().width;
-            positions[rIndex * 3 + 4] = r.item1().top;
-            positions[rIndex * 3 + 5] = r.item1().z;
-
-            positions[rIndex * 3 + 6] = r.item1().left + r.item1().width;
-            positions[rIndex * 3 + 7] = r.item1().top + r.item1().height;
-            positions[rIndex * 3 + 8] = r.item1().z;
-
-            positions[rIndex * 3 + 9] = r.item1().left;
-            positions[rIndex * 3 + 10] = r.item1().top + r.item1().height;
-            positions[rIndex * 3 + 11] = r.item1().z;
-
-            colors[rIndex * 3 + 0] = r.item2().r;
-            colors[rIndex * 3 + 1] = r.item2().g;
-            colors[rIndex * 3 + 2] = r.item2().b;
-
-            colors[rIndex * 3 + 3] = r.item2().r;
-            colors[rIndex * 3 + 4] = r.item2().g;
-            colors[rIndex * 3 + 5] = r.item2().b;
-
-            colors[rIndex * 3 + 6] = r.item2().r;
-            colors[rIndex * 3 + 7] = r.item2().g;
-            colors[rIndex * 3 + 8] = r.item2().b;
-
-            colors[rIndex * 3 + 9] = r.item2().r;
-            colors[rIndex * 3 + 10] = r.item2().g;
-            colors[rIndex * 3 + 11] = r.item2().b;
-
-            indices[iIndex + 0] = rIndex + 0;
-            indices[iIndex + 1] = rIndex + 1;
-            indices[iIndex + 2] = rIndex + 2;
-
-            indices[iIndex + 3] = rIndex + 0;
-            indices[iIndex + 4] = rIndex + 2;
-            indices[iIndex + 5] = rIndex + 3;
-
-            rIndex += 4;
-            iIndex += 6;
+        float[] data = triangles.data();
+        long address = vertices.map((long) triangles.size() * 3 * COLOR_STRIDE);
+        for (int t = 0; t < triangles.size(); t++) {
+            int i = t * DrawCommandBuffer.TRIANGLE;
+            float r = data[i + 9];
+            float g = data[i + 10];
+            float b = data[i + 11];
+            address = putVertex(address, data[i], data[i + 1], data[i + 2], r, g, b);
+            address = putVertex(address, data[i + 3], data[i + 4], data[i + 5], r, g, b);
+            address = putVertex(address, data[i + 6], data[i + 7], data[i + 8], r, g, b);
         }
+        bindColorVertices(vertices.unmap());
 
-        return new BuffersColor(positions, colors, indices);
+        shader.bind();
+        setMatrices(shader, mProjection);
+        glDrawArrays(GL_TRIANGLES, 0, triangles.size() * 3);
+        glBindVertexArray(0);
+        shader.unbind();
+        return 1;
     }
 
-    public static BuffersTexture prepareRectsTextureBuffers(ArrayList<Tuple5<Texture, Rectangle, Rectangle, Matrix4f, Vector3f>> rectangles) {
-        float[] positions = new float[rectangles.size() * 12];
-        float[] coords = new float[rectangles.size() * 8];
-        int[] indices = new int[rectangles.size() * 6];
-
-        int rIndex = 0;
-        int iIndex = 0;
-        for (var r : rectangles) {
-            positions[rIndex * 3 + 0] = r.item2().left;
-            positions[rIndex * 3 + 1] = r.item2().top;
-            positions[rIndex * 3 + 2] = r.item2().z;
-
-            positions[rIndex * 3 + 3] = r.item2().left + r.item2().width;
-            positions[rIndex * 3 + 4] = r.item2().top;
-            positions[rIndex * 3 + 5] = r.item2().z;
-
-            positions[rIndex * 3 + 6] = r.item2().left + r.item2().width;
-            positions[rIndex * 3 + 7] = r.item2().top + r.item2().height;
-            positions[rIndex * 3 + 8] = r.item2().z;
-
-            positions[rIndex * 3 + 9] = r.item2().left;
-            positions[rIndex * 3 + 10] = r.item2().top + r.item2().height;
-            positions[rIndex * 3 + 11] = r.item2().z;
-
-            // r.item3 is the sub image to render, in pixels coord.
-            // we have to convert them to texture coords for correct rendering.
-
-            if (r.item3() != null) {
-                coords[rIndex * 2 + 0] = r.item3().left / r.item1().getWidth();
-                coords[rIndex * 2 + 1] = r.item3().top / r.item1().getHeight();
-
-                coords[rIndex * 2 + 2] = (r.item3().left + r.item3().width) / r.item1().getWidth();
-                coords[rIndex * 2 + 3] = r.item3().top / r.item1().getHeight();
-
-                coords[rIndex * 2 + 4] = (r.item3().left + r.item3().width) / r.item1().getWidth();
-                coords[rIndex * 2 + 5] = (r.item3().top + r.item3().height) / r.item1().getHeight();
-
-                coords[rIndex * 2 + 6] = r.item3().left / r.item1().getWidth();
-                coords[rIndex * 2 + 7] = (r.item3().top + r.item3().height) / r.item1().getHeight();
-            } else {
-                coords[rIndex * 2 + 0] = 0.0f;
-                coords[rIndex * 2 + 1] = 0.0f;
-
-                coords[rIndex * 2 + 2] = 1.0f;
-                coords[rIndex * 2 + 3] = 0.0f;
-
-                coords[rIndex * 2 + 4] = 1.0f;
-                coords[rIndex * 2 + 5] = 1.0f;
-
-                coords[rIndex * 2 + 6] = 0.0f;
-                coords[rIndex * 2 + 7] = 1.0f;
-            }
-
-            indices[iIndex + 0] = rIndex + 0;
-            indices[iIndex + 1] = rIndex + 1;
-            indices[iIndex + 2] = rIndex + 2;
-
-            indices[iIndex + 3] = rIndex + 0;
-            indices[iIndex + 4] = rIndex + 2;
-            indices[iIndex + 5] = rIndex + 3;
+    public int renderLines(Matrix4f mProjection, ShaderProgram shader, DrawCommandBuffer lines) {
+        if (lines.isEmpty()) {
+            return 0;
+        }
 
-            rIndex += 4;
-            iIndex += 6;
+        float[] data = lines.data();
+        long address = vertices.map((long) lines.size() * 2 * COLOR_STRIDE);
+        for (int l = 0; l < lines.size(); l++) {
+            int i = l * DrawCommandBuffer.LINE;
+            address = putVertex(address, data[i], data[i + 1], data[i + 2], data[i + 6], data[i + 7], data[i + 8]);
+            address = putVertex(address, data[i + 3], data[i + 4], data[i + 5], data[i + 6], data[i + 7], data[i + 8]);
         }
+        bindColorVertices(vertices.unmap());
 
-        return new BuffersTexture(positions, coords, indices);
+        shader.bind();
+        setMatrices(shader, mProjection);
+        glDrawArrays(GL_LINES, 0, lines.size() * 2);
+        glBindVertexArray(0);
+        shader.unbind();
+        return 1;
     }
 
-    public static BuffersTexture prepareTextGlyphBuffers(ArrayList<Tuple8<Texture, Rectangle, Vector2f, Vector2f, Vector2f, Vector2f, Matrix4f, Vector3f>> rectangles) {
-        float[] positions = new float[rectangles.size() * 12];
-        float[] coords = new float[rectangles.size() * 8];
-        int[] indices = new int[rectangles.size() * 6];
-
-        int rIndex = 0;
-        int iIndex = 0;
-        for (var r : rectangles) {
-            positions[rIndex * 3 + 0] = r.item2().left;
-            positions[rIndex * 3 + 1] = r.item2().top;
-            positions[rIndex * 3 + 2] = r.item2().z;
-
-            positions[rIndex * 3 + 3] = r.item2().left + r.item2().width;
-            positions[rIndex * 3 + 4] = r.item2().top;
-            positions[rIndex * 3 + 5] = r.item2().z;
-
-            positions[rIndex * 3 + 6] = r.item2().left + r.item2().width;
-            positions[rIndex * 3 + 7] = r.item2().top + r.item2().height;
-            positions[rIndex * 3 + 8] = r.item2().z;
-
-            positions[rIndex * 3 + 9] = r.item2().left;
-            positions[rIndex * 3 + 10] = r.item2().top + r.item2().height;
-            positions[rIndex * 3 + 11] = r.item2().z;
-
-            coords[rIndex * 2 + 0] = r.item3().x;
-            coords[rIndex * 2 + 1] = r.item3().y;
-
-            coords[rIndex * 2 + 2] = r.item4().x;
-            coords[rIndex * 2 + 3] = r.item4().y;
-
-            coords[rIndex * 2 + 4] = r.item5().x;
-            coords[rIndex * 2 + 5] = r.item5().y;
-
-            coords[rIndex * 2 + 6] = r.item6().x;
-            coords[rIndex * 2 + 7] = r.item6().y;
-
-            indices[iIndex + 0] = rIndex + 0;
-            indices[iIndex + 1] = rIndex + 1;
-            indices[iIndex + 2] = rIndex + 2;
-
-            indices[iIndex + 3] = rIndex + 0;
-            indices[iIndex + 4] = rIndex + 2;
-            indices[iIndex + 5] = rIndex + 3;
+    public int renderRectangles(Matrix4f mProjection, ShaderProgram shader, DrawCommandBuffer rectangles) {
+        if (rectangles.isEmpty()) {
+            return 0;
+        }
 
-            rIndex += 4;
-            iIndex += 6;
+        ensureQuadIndices(rectangles.size());
+        float[] data = rectangles.data();
+        long address = vertices.map((long) rectangles.size() * 4 * COLOR_STRIDE);
+        for (int r = 0; r < rectangles.size(); r++) {
+            address = putQuad(address, data, r * DrawCommandBuffer.QUAD);
         }
+        bindColorVertices(vertices.unmap());
 
-        return new BuffersTexture(positions, coords, indices);
+        shader.bind();
+        setMatrices(shader, mProjection);
+        drawQuads(0, rectangles.size());
+        glBindVertexArray(0);
+        shader.unbind();
+        return 1;
     }
 
-    public static void renderTriangles(Matrix4f mProjection, ShaderProgram shader, BuffersColor buffers, ArrayList<Tuple3<Triangle, Color, Matrix4f>> triangles) {
-        if (triangles.isEmpty()) {
-            return;
+    // Texels at or below alphaCutoff are discarded.  Rectangles without a texture are drawn with a
+    // white one, so only their color shows.
+    public int renderTexturedRectangles(Matrix4f mProjection, ShaderProgram shader, DrawCommandBuffer rectangles, float alphaCutoff) {
+        if (rectangles.isEmpty()) {
+            return 0;
         }
 
-        List<FloatBuffer> memBuffers = new ArrayList<>();
-        int vaoId = glGenVertexArrays();
-        glBindVertexArray(vaoId);
-
-        int vboVerts = glGenBuffers();
-        FloatBuffer bufferPositions = MemoryUtil.memAllocFloat(buffers.positions.length);
-        bufferPositions.put(0, buffers.positions);
-        glBindBuffer(GL_ARRAY_BUFFER, vboVerts);
-        glBufferData(GL_ARRAY_BUFFER, bufferPositions, GL_STATIC_DRAW);
-        MemoryUtil.memFree(bufferPositions);
-        glEnableVertexAttribArray(0);
-        glVertexAttribPointer(0, 3, GL_FLOAT, false, 0, 0);
-
-        int vboColors = glGenBuffers();
-        FloatBuffer bufferColors = MemoryUtil.memAllocFloat(buffers.colors.length);
-        bufferColors.put(0, buffers.colors);
-        glBindBuffer(GL_ARRAY_BUFFER, vboColors);
-        glBufferData(GL_ARRAY_BUFFER, bufferColors, GL_STATIC_DRAW);
-        MemoryUtil.memFree(bufferColors);
-        glEnableVertexAttribArray(1);
-        glVertexAttribPointer(1, 3, GL_FLOAT, false, 0, 0);
-
-        int vboIndex = glGenBuffers();
-        IntBuffer bufferIndex = MemoryUtil.memAllocInt(buffers.indices.length);
-        bufferIndex.put(0, buffers.indices);
-        glBindBuffer(GL_ELEMENT_ARRAY_BUFFER, vboIndex);
-        glBufferData(GL_ELEMENT_ARRAY_BUFFER, bufferIndex, GL_STATIC_DRAW);
-        MemoryUtil.memFree(bufferIndex);
-
-        glBindBuffer(GL_ARRAY_BUFFER, 0);
-        glBindVertexArray(0);
+        // The rows are already laid out as instances, so they are copied over unchanged.
+        float[] data = rectangles.data();
+        int floats = rectangles.size() * DrawCommandBuffer.QUAD;
+        long address = vertices.map((long) floats * Float.BYTES);
+        for (int i = 0; i < floats; i++) {
+            memPutFloat(address + (long) i * Float.BYTES, data[i]);
+        }
+        long offset = vertices.unmap();
 
+        int drawCalls = 0;
         shader.bind();
-
-        try (MemoryStack stack = MemoryStack.stackPush()) {
-            // Now, step through the list of rectangles and see which ones we can draw together and
-            // which ones need to be drawn individually.
-            int locationProjection = glGetUniformLocation(shader.getProgramId(), "mProjection");
-            glUniformMatrix4fv(locationProjection, false, mProjection.get(stack.mallocFloat(16)));
-            int locationModel = glGetUniformLocation(shader.getProgramId(), "mModel");
-
-            glBindVertexArray(vaoId);
-
-            int startIndex = 0;
-            Matrix4f mModelGroup = triangles.get(0).item3();
-            for (int t = 1; t <= triangles.size(); t++) {
-                if (t == triangles.size() || mModelGroup != triangles.get(t).item3()) {
-                    memBuffers.add(MemoryUtil.memAllocFloat(16));
-                    glUniformMatrix4fv(locationModel, false, mModelGroup.get(memBuffers.get(memBuffers.size() - 1)));
-                    // * 3 because three values per index
-                    glDrawElements(GL_TRIANGLES, (t - startIndex) * 3, GL_UNSIGNED_INT, (long) startIndex * 3 * Integer.BYTES);
-
-                    startIndex = t;
-                    if (t < triangles.size()) {
-                        mModelGroup = triangles.get(t).item3();
-                    }
-                }
+        setProjection(shader, mProjection);
+        glUniform1f(glGetUniformLocation(shader.getProgramId(), "alphaCutoff"), alphaCutoff);
+        glUniform1f(glGetUniformLocation(shader.getProgramId(), "time"), animationTime);
+        glActiveTexture(GL_TEXTURE0);
+        glBindVertexArray(vaoInstanced);
+
+        int startIndex = 0;
+        for (int r = 1; r <= rectangles.size(); r++) {
+            Texture texture = rectangles.getTexture(startIndex);
+            if (r == rectangles.size() || texture != rectangles.getTexture(r)) {
+                (texture != null ? texture : white).bind();
+                // GL 3.3 has no base instance, so the attributes are pointed at the batch instead.
+                vertices.bind();
+                bindInstances(offset + (long) startIndex * INSTANCE_STRIDE);
+                drawCalls++;
+                glDrawElementsInstanced(GL_TRIANGLES, 6, GL_UNSIGNED_INT, 0, r - startIndex);
+                startIndex = r;
             }
-
-            glBindVertexArray(0);
-            shader.unbind();
-
-            glDeleteBuffers(vboVerts);
-            glDeleteBuffers(vboColors);
-            glDeleteBuffers(vboIndex);
-            glDeleteVertexArrays(vaoId);
-        }
-
-        for (var memory : memBuffers) {
-            MemoryUtil.memFree(memory);
         }
+        glBindVertexArray(0);
+        shader.unbind();
+        return drawCalls;
     }
 
-    public static void renderLines(Matrix4f mProjection, ShaderProgram shader, BuffersColor buffers, ArrayList<Tuple3<Vector3f, Vector3f, Color>> lines) {
-        if (lines.isEmpty()) {
-            return;
+    public int renderLayer(Matrix4f mProjection, ShaderProgram shader, InstanceLayer layer, float alphaCutoff) {
+        int runs = layer.getRunCount();
+        if (runs == 0) {
+            return 0;
         }
 
-        List<FloatBuffer> memBuffers = new ArrayList<>();
-        int vaoId = glGenVertexArrays();
-        glBindVertexArray(vaoId);
-
-        int vboVerts = glGenBuffers();
-        FloatBuffer bufferPositions = MemoryUtil.memAllocFloat(buffers.positions.length);
-        bufferPositions.put(0, buffers.positions);
-        glBindBuffer(GL_ARRAY_BUFFER, vboVerts);
-        glBufferData(GL_ARRAY_BUFFER, bufferPositions, GL_STATIC_DRAW);
-        MemoryUtil.memFree(bufferPositions);
-        glEnableVertexAttribArray(0);
-        glVertexAttribPointer(0, 3, GL_FLOAT, false, 0, 0);
-
-        int vboColors = glGenBuffers();
-        FloatBuffer bufferColors = MemoryUtil.memAllocFloat(buffers.colors.length);
-        bufferColors.put(0, buffers.colors);
-        glBindBuffer(GL_ARRAY_BUFFER, vboColors);
-        glBufferData(GL_ARRAY_BUFFER, bufferColors, GL_STATIC_DRAW);
-        MemoryUtil.memFree(bufferColors);
-        glEnableVertexAttribArray(1);
-        glVertexAttribPointer(1, 3, GL_FLOAT, false, 0, 0);
-
-        int vboIndex = glGenBuffers();
-        IntBuffer bufferIndex = MemoryUtil.memAllocInt(buffers.indices.length);
-        bufferIndex.put(0, buffers.indices);
-        glBindBuffer(GL_ELEMENT_ARRAY_BUFFER, vboIndex);
-        glBufferData(GL_ELEMENT_ARRAY_BUFFER, bufferIndex, GL_STATIC_DRAW);
-        MemoryUtil.memFree(bufferIndex);
-
-        glBindBuffer(GL_ARRAY_BUFFER, 0);
-        glBindVertexArray(0);
-
         shader.bind();
-
-        try (MemoryStack stack = MemoryStack.stackPush()) {
-            // Now, step through the list of rectangles and see which ones we can draw together and
-            // which ones need to be drawn individually.
-            int locationProjection = glGetUniformLocation(shader.getProgramId(), "mProjection");
-            glUniformMatrix4fv(locationProjection, false, mProjection.get(stack.mallocFloat(16)));
-            int locationModel = glGetUniformLocation(shader.getProgramId(), "mModel");
-
-            glBindVertexArray(vaoId);
-
-            Matrix4f mModelGroup = (new Matrix4f()).identity();
-            memBuffers.add(MemoryUtil.memAllocFloat(16));
-            glUniformMatrix4fv(locationModel, false, mModelGroup.get(memBuffers.get(memBuffers.size() - 1)));
-            // * 2 because three values per index
-            glDrawElements(GL_LINES, lines.size() * 2, GL_UNSIGNED_INT, (long) 0);
-
-            glBindVertexArray(0);
-            shader.unbind();
-
-            glDeleteBuffers(vboVerts);
-            glDeleteBuffers(vboColors);
-            glDeleteBuffers(vboIndex);
-            glDeleteVertexArrays(vaoId);
+        setProjection(shader, mProjection);
+        glUniform1f(glGetUniformLocation(shader.getProgramId(), "alphaCutoff"), alphaCutoff);
+        glUniform1f(glGetUniformLocation(shader.getProgramId(), "time"), animationTime);
+        glActiveTexture(GL_TEXTURE0);
+        glBindVertexArray(vaoInstanced);
+        layer.bind();
+        for (int run = 0; run < runs; run++) {
+            int start = layer.getRunStart(run);
+            layer.getRunTexture(run).bind();
+            bindInstances((long) start * INSTANCE_STRIDE);
+            glDrawElementsInstanced(GL_TRIANGLES, 6, GL_UNSIGNED_INT, 0, layer.getRunStart(run + 1) - start);
         }
-
-        for (var memory : memBuffers) {
-            MemoryUtil.memFree(memory);
-        }
-    }
-
-    public static void renderRectangles(Matrix4f mProjection, ShaderProgram shader, BuffersColor buffers, ArrayList<Tuple3<Rectangle, Color, Matrix4f>> rectangles) {
-        if (rectangles.isEmpty()) {
-            return;
-        }
-
-        List<FloatBuffer> memBuffers = new ArrayList<>();
-        int vaoId = glGenVertexArrays();
-        glBindVertexArray(vaoId);
-
-        int vboVerts = glGenBuffers();
-        FloatBuffer bufferPositions = MemoryUtil.memAllocFloat(buffers.positions.length);
-        bufferPositions.put(0, buffers.positions);
-        glBindBuffer(GL_ARRAY_BUFFER, vboVerts);
-        glBufferData(GL_ARRAY_BUFFER, bufferPositions, GL_STATIC_DRAW);
-        MemoryUtil.memFree(bufferPositions);
-        glEnableVertexAttribArray(0);
-        glVertexAttribPointer(0, 3, GL_FLOAT, false, 0, 0);
-
-        int vboColors = glGenBuffers();
-        FloatBuffer bufferColors = MemoryUtil.memAllocFloat(buffers.colors.length);
-        bufferColors.put(0, buffers.colors);
-        glBindBuffer(GL_ARRAY_BUFFER, vboColors);
-        glBufferData(GL_ARRAY_BUFFER, bufferColors, GL_STATIC_DRAW);
-        MemoryUtil.memFree(bufferColors);
-        glEnableVertexAttribArray(1);
-        glVertexAttribPointer(1, 3, GL_FLOAT, false, 0, 0);
-
-        int vboIndex = glGenBuffers();
-        IntBuffer bufferIndex = MemoryUtil.memAllocInt(buffers.indices.length);
-        bufferIndex.put(0, buffers.indices);
-        glBindBuffer(GL_ELEMENT_ARRAY_BUFFER, vboIndex);
-        glBufferData(GL_ELEMENT_ARRAY_BUFFER, bufferIndex, GL_STATIC_DRAW);
-        MemoryUtil.memFree(bufferIndex);
-
-        glBindBuffer(GL_ARRAY_BUFFER, 0);
         glBindVertexArray(0);
+        shader.unbind();
+        return runs;
+    }
 
-        shader.bind();
-
+    // Primitives arrive already in place, rotation included, so the model matrix is always the
+    // identity.
+    private static void setMatrices(ShaderProgram shader, Matrix4f mProjection) {
+        setProjection(shader, mProjection);
         try (MemoryStack stack = MemoryStack.stackPush()) {
-            // Now, step through the list of rectangles and see which ones we can draw together and
-            // which ones need to be drawn individually.
-            int locationProjection = glGetUniformLocation(shader.getProgramId(), "mProjection");
-            glUniformMatrix4fv(locationProjection, false, mProjection.get(stack.mallocFloat(16)));
-            int locationModel = glGetUniformLocation(shader.getProgramId(), "mModel");
-
-            glBindVertexArray(vaoId);
-
-            int startIndex = 0;
-            Matrix4f mModelGroup = rectangles.get(0).item3();
-            for (int r = 1; r <= rectangles.size(); r++) {
-                if (r == rectangles.size() || mModelGroup != rectangles.get(r).item3()) {
-                    memBuffers.add(MemoryUtil.memAllocFloat(16));
-                    glUniformMatrix4fv(locationModel, false, mModelGroup.get(memBuffers.get(memBuffers.size() - 1)));
-                    // * 3 because three values per index
-                    // * 2 because two triangles per rectangle
-                    glDrawElements(GL_TRIANGLES, (r - startIndex) * 3 * 2, GL_UNSIGNED_INT, (long) startIndex * 3 * 2 * Integer.BYTES);
-
-                    startIndex = r;
-                    if (r < rectangles.size()) {
-                        mModelGroup = rectangles.get(r).item3();
-                    }
-                }
-            }
-
-            glBindVertexArray(0);
-            shader.unbind();
-
-            glDeleteBuffers(vboVerts);
-            glDeleteBuffers(vboColors);
-            glDeleteBuffers(vboIndex);
-            glDeleteVertexArrays(vaoId);
-        }
-
-        for (var memory : memBuffers) {
-            MemoryUtil.memFree(memory);
+            FloatBuffer matrix = stack.mallocFloat(16);
+            glUniformMatrix4fv(glGetUniformLocation(shader.getProgramId(), "mModel"), false, IDENTITY.get(matrix));
         }
     }
 
-    public static void renderRectangles(Matrix4f mProjection, ShaderProgram shader, BuffersTexture buffers, ArrayList<Tuple5<Texture, Rectangle, Rectangle, Matrix4f, Vector3f>> rectangles) {
-        if (rectangles.isEmpty()) {
-            return;
+    private static void setProjection(ShaderProgram shader, Matrix4f mProjection) {
+        try (MemoryStack stack = MemoryStack.stackPush()) {
+            FloatBuffer matrix = stack.mallocFloat(16);
+            glUniformMatrix4fv(glGetUniformLocation(shader.getProgramId(), "mProjection"), false, mProjection.get(matrix));
         }
+    }
 
-        List<FloatBuffer> memBuffers = new ArrayList<>();
-
-        int vaoId = glGenVertexArrays();
-        glBindVertexArray(vaoId);
-
-        int vboVerts = glGenBuffers();
-        FloatBuffer bufferPositions = MemoryUtil.memAllocFloat(buffers.positions.length);
-        bufferPositions.put(0, buffers.positions);
-        glBindBuffer(GL_ARRAY_BUFFER, vboVerts);
-        glBufferData(GL_ARRAY_BUFFER, bufferPositions, GL_STATIC_DRAW);
-        MemoryUtil.memFree(bufferPositions);
-        glEnableVertexAttribArray(0);
-        glVertexAttribPointer(0, 3, GL_FLOAT, false, 0, 0);
-
-        int vboCoords = glGenBuffers();
-        FloatBuffer bufferTexCoords = MemoryUtil.memAllocFloat(buffers.coords.length);
-        bufferTexCoords.put(0, buffers.coords);
-        glBindBuffer(GL_ARRAY_BUFFER, vboCoords);
-        glBufferData(GL_ARRAY_BUFFER, bufferTexCoords, GL_STATIC_DRAW);
-        MemoryUtil.memFree(bufferTexCoords);
-        glEnableVertexAttribArray(1);
-        glVertexAttribPointer(1, 2, GL_FLOAT, false, 0, 0);
-
-        int vboIndex = glGenBuffers();
-        IntBuffer bufferIndex = MemoryUtil.memAllocInt(buffers.indices.length);
-        bufferIndex.put(0, buffers.indices);
-        glBindBuffer(GL_ELEMENT_ARRAY_BUFFER, vboIndex);
-        glBufferData(GL_ELEMENT_ARRAY_BUFFER, bufferIndex, GL_STATIC_DRAW);
-        MemoryUtil.memFree(bufferIndex);
+    // Draws rectangles [first, end) of the current batch.
+    private static void drawQuads(int first, int end) {
+        // * 3 because three values per index
+        // * 2 because two triangles per rectangle
+        glDrawElements(GL_TRIANGLES, (end - first) * 3 * 2, GL_UNSIGNED_INT, (long) first * 3 * 2 * Integer.BYTES);
+    }
 
+    private void bindColorVertices(long offset) {
+        glBindVertexArray(vaoColor);
+        glVertexAttribPointer(0, 3, GL_FLOAT, false, COLOR_STRIDE, offset);
+        glVertexAttribPointer(1, 3, GL_FLOAT, false, COLOR_STRIDE, offset + 3 * Float.BYTES);
         glBindBuffer(GL_ARRAY_BUFFER, 0);
-        glBindVertexArray(0);
-
-        shader.bind();
-
-        try (MemoryStack stack = MemoryStack.stackPush()) {
-            // Now, step through the list of rectangles and see which ones we can draw together and
-            // which ones need to be drawn individually.
-            int locationProjection = glGetUniformLocation(shader.getProgramId(), "mProjection");
-            glUniformMatrix4fv(locationProjection, false, mProjection.get(stack.mallocFloat(16)));
-            int locationModel = glGetUniformLocation(shader.getProgramId(), "mModel");
-            int locationColor = glGetUniformLocation(shader.getProgramId(), "color");
-
-            glBindVertexArray(vaoId);
-
-            int startIndex = 0;
-            Matrix4f mModelGroup = rectangles.get(0).item4();
-            for (int r = 1; r <= rectangles.size(); r++) {
-                if (r == rectangles.size() || rectangles.get(r - 1).item1() != rectangles.get(r).item1() || rectangles.get(r - 1).item5() != rectangles.get(r).item5() || mModelGroup != rectangles.get(r).item4()) {
-
-                    memBuffers.add(MemoryUtil.memAllocFloat(16));
-                    glUniformMatrix4fv(locationModel, false, mModelGroup.get(memBuffers.get(memBuffers.size() - 1)));
-                    memBuffers.add(MemoryUtil.memAllocFloat(3));
-                    glUniform3fv(locationColor, rectangles.get(r - 1).item5().get(memBuffers.get(memBuffers.size() - 1)));
-
-                    glActiveTexture(GL_TEXTURE0);
-                    rectangles.get(r - 1).item1().bind();
-
-                    // * 3 because three values per index
-                    // * 2 because two triangles per rectangle
-                    glDrawElements(GL_TRIANGLES, (r - startIndex) * 3 * 2, GL_UNSIGNED_INT, (long) startIndex * 3 * 2 * Integer.BYTES);
-
-                    startIndex = r;
-                    if (r < rectangles.size()) {
-                        mModelGroup = rectangles.get(r).item4();
-                    }
-                }
-            }
-
-            glBindVertexArray(0);
-            shader.unbind();
-
-            glDeleteBuffers(vboVerts);
-            glDeleteBuffers(vboCoords);
-            glDeleteBuffers(vboIndex);
-            glDeleteVertexArrays(vaoId);
-        }
+    }
 
-        for (var memory : memBuffers) {
-            MemoryUtil.memFree(memory);
-        }
+    // Points the instance attributes at the rows starting at offset in the bound array buffer.
+    private static void bindInstances(long offset) {
+        glVertexAttribPointer(1, 4, GL_FLOAT, false, INSTANCE_STRIDE, offset + DrawCommandBuffer.LEFT * Float.BYTES);
+        glVertexAttribPointer(2, 1, GL_FLOAT, false, INSTANCE_STRIDE, offset + DrawCommandBuffer.Z * Float.BYTES);
+        glVertexAttribPointer(3, 4, GL_FLOAT, false, INSTANCE_STRIDE, offset + DrawCommandBuffer.U0 * Float.BYTES);
+        glVertexAttribPointer(4, 4, GL_FLOAT, false, INSTANCE_STRIDE, offset + DrawCommandBuffer.RED * Float.BYTES);
+        glVertexAttribPointer(5, 3, GL_FLOAT, false, INSTANCE_STRIDE, offset + DrawCommandBuffer.ROTATION * Float.BYTES);
+        glVertexAttribPointer(6, 3, GL_FLOAT, false, INSTANCE_STRIDE, offset + DrawCommandBuffer.FRAMES * Float.BYTES);
+        glBindBuffer(GL_ARRAY_BUFFER, 0);
     }
 
-    public static void renderTextGlyphRectangles(Matrix4f mProjection, ShaderProgram shader, BuffersTexture buffers, ArrayList<Tuple8<Texture, Rectangle, Vector2f, Vector2f, Vector2f, Vector2f, Matrix4f, Vector3f>> rectangles) {
-        if (rectangles.isEmpty()) {
+    private void ensureQuadIndices(int quads) {
+        if (quads <= quadCapacity) {
             return;
         }
-
-        List<FloatBuffer> memBuffers = new ArrayList<>();
-
-        int vaoId = glGenVertexArrays();
-        glBindVertexArray(vaoId);
-
-        int vboVerts = glGenBuffers();
-        FloatBuffer bufferPositions = MemoryUtil.memAllocFloat(buffers.positions.length);
-        bufferPositions.put(0, buffers.positions);
-        glBindBuffer(GL_ARRAY_BUFFER, vboVerts);
-        glBufferData(GL_ARRAY_BUFFER, bufferPositions, GL_STATIC_DRAW);
-        MemoryUtil.memFree(bufferPositions);
-        glEnableVertexAttribArray(0);
-        glVertexAttribPointer(0, 3, GL_FLOAT, false, 0, 0);
-
-        int vboCoords = glGenBuffers();
-        FloatBuffer bufferTexCoords = MemoryUtil.memAllocFloat(buffers.coords.length);
-        bufferTexCoords.put(0, buffers.coords);
-        glBindBuffer(GL_ARRAY_BUFFER, vboCoords);
-        glBufferData(GL_ARRAY_BUFFER, bufferTexCoords, GL_STATIC_DRAW);
-        MemoryUtil.memFree(bufferTexCoords);
-        glEnableVertexAttribArray(1);
-        glVertexAttribPointer(1, 2, GL_FLOAT, false, 0, 0);
-
-        int vboIndex = glGenBuffers();
-        IntBuffer bufferIndex = MemoryUtil.memAllocInt(buffers.indices.length);
-        bufferIndex.put(0, buffers.indices);
-        glBindBuffer(GL_ELEMENT_ARRAY_BUFFER, vboIndex);
-        glBufferData(GL_ELEMENT_ARRAY_BUFFER, bufferIndex, GL_STATIC_DRAW);
-        MemoryUtil.memFree(bufferIndex);
-
+        quadCapacity = Math.max(quads, quadCapacity * 2);
+        IntBuffer indices = MemoryUtil.memAllocInt(quadCapacity * 6);
+        for (int q = 0; q < quadCapacity; q++) {
+            int v = q * 4;
+            indices.put(v + 0).put(v + 1).put(v + 2);
+            indices.put(v + 0).put(v + 2).put(v + 3);
+        }
+        indices.flip();
+        // The buffer is part of both VAOs' state, so only its contents are replaced.  It is
+        // bound as an array buffer to do that, as the element binding belongs to whichever VAO
+        // is current.
+        glBindBuffer(GL_ARRAY_BUFFER, quadIndices);
+        glBufferData(GL_ARRAY_BUFFER, indices, GL_STATIC_DRAW);
         glBindBuffer(GL_ARRAY_BUFFER, 0);
-        glBindVertexArray(0);
-
-        shader.bind();
-
-        try (MemoryStack stack = MemoryStack.stackPush()) {
-            // Now, step through the list of rectangles and see which ones we can draw together and
-            // which ones need to be drawn individually.
-            int locationProjection = glGetUniformLocation(shader.getProgramId(), "mProjection");
-            glUniformMatrix4fv(locationProjection, false, mProjection.get(stack.mallocFloat(16)));
-            int locationModel = glGetUniformLocation(shader.getProgramId(), "mModel");
-            int locationColor = glGetUniformLocation(shader.getProgramId(), "color");
-
-            glBindVertexArray(vaoId);
-
-            int startIndex = 0;
-            Matrix4f mModelGroup = rectangles.get(0).item7();
-            for (int r = 1; r <= rectangles.size(); r++) {
-                if (r == rectangles.size() || rectangles.get(r - 1).item1() != rectangles.get(r).item1() || rectangles.get(r - 1).item8() != rectangles.get(r).item8() || mModelGroup != rectangles.get(r).item7()) {
-
-                    memBuffers.add(MemoryUtil.memAllocFloat(16));
-                    glUniformMatrix4fv(locationModel, false, mModelGroup.get(memBuffers.get(memBuffers.size() - 1)));
-                    memBuffers.add(MemoryUtil.memAllocFloat(3));
-                    glUniform3fv(locationColor, rectangles.get(r - 1).item8().get(memBuffers.get(memBuffers.size() - 1)));
-
-                    glActiveTexture(GL_TEXTURE0);
-                    rectangles.get(r - 1).item1().bind();
-
-                    // * 3 because three values per index
-                    // * 2 because two triangles per rectangle
-                    glDrawElements(GL_TRIANGLES, (r - startIndex) * 3 * 2, GL_UNSIGNED_INT, (long) startIndex * 3 * 2 * Integer.BYTES);
-
-                    startIndex = r;
-                    if (r < rectangles.size()) {
-                        mModelGroup = rectangles.get(r).item7();
-                    }
-                }
-            }
-
-            glBindVertexArray(0);
-            shader.unbind();
+        MemoryUtil.memFree(indices);
+    }
 
-            glDeleteBuffers(vboVerts);
-            glDeleteBuffers(vboCoords);
-            glDeleteBuffers(vboIndex);
-            glDeleteVertexArrays(vaoId);
+    // Writes the four corners of the quad at row i, turned about its center of rotation.
+    private static long putQuad(long address, float[] data, int i) {
+        float left = data[i + DrawCommandBuffer.LEFT];
+        float top = data[i + DrawCommandBuffer.TOP];
+        float right = left + data[i + DrawCommandBuffer.WIDTH];
+        float bottom = top + data[i + DrawCommandBuffer.HEIGHT];
+        float rotation = data[i + DrawCommandBuffer.ROTATION];
+        // Corners clockwise from the top left, as the quad indices expect.
+        float x0 = left, y0 = top, x1 = right, y1 = top, x2 = right, y2 = bottom, x3 = left, y3 = bottom;
+        if (rotation != 0) {
+            float cos = (float) Math.cos(rotation);
+            float sin = (float) Math.sin(rotation);
+            float cx = data[i + DrawCommandBuffer.CENTER_X];
+            float cy = data[i + DrawCommandBuffer.CENTER_Y];
+            x0 = cx + (left - cx) * cos - (top - cy) * sin;
+            y0 = cy + (left - cx) * sin + (top - cy) * cos;
+            x1 = cx + (right - cx) * cos - (top - cy) * sin;
+            y1 = cy + (right - cx) * sin + (top - cy) * cos;
+            x2 = cx + (right - cx) * cos - (bottom - cy) * sin;
+            y2 = cy + (right - cx) * sin + (bottom - cy) * cos;
+            x3 = cx + (left - cx) * cos - (bottom - cy) * sin;
+            y3 = cy + (left - cx) * sin + (bottom - cy) * cos;
         }
+        float z = data[i + DrawCommandBuffer.Z];
+        float r = data[i + DrawCommandBuffer.RED];
+        float g = data[i + DrawCommandBuffer.GREEN];
+        float b = data[i + DrawCommandBuffer.BLUE];
+        address = putVertex(address, x0, y0, z, r, g, b);
+        address = putVertex(address, x1, y1, z, r, g, b);
+        address = putVertex(address, x2, y2, z, r, g, b);
+        return putVertex(address, x3, y3, z, r, g, b);
+    }
 
-        for (var memory : memBuffers) {
-            MemoryUtil.memFree(memory);
-        }
+    private static long putVertex(long address, float x, float y, float z, float r, float g, float b) {
+        memPutFloat(address, x);
+        memPutFloat(address + 4, y);
+        memPutFloat(address + 8, z);
+        memPutFloat(address + 12, r);
+        memPutFloat(address + 16, g);
+        memPutFloat(address + 20, b);
+        return address + COLOR_STRIDE;
     }
 }
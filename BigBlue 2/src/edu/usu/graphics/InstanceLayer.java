@@ -0,0 +1,203 @@
+package edu.usu.graphics;
+
+import org.lwjgl.system.MemoryUtil;
+
+import java.nio.FloatBuffer;
+import java.util.Arrays;
+
+import static org.lwjgl.opengl.GL33.*;
+
+/**
+ * Textured rectangles that stay on the GPU from frame to frame, one per slot, for things that
+ * rarely change, like the tiles of a board.  Setting a slot to what it already holds does nothing;
+ * a frame only uploads the slots that changed since the last one, and one where nothing changed
+ * uploads nothing at all.  Draw the layer with Graphics2D.draw(InstanceLayer) each frame.
+ *
+ * Slots are drawn like opaque textured rectangles: the depth buffer layers them, and a slot's
+ * color should be fully opaque.  An empty slot draws nothing.
+ */
+public class InstanceLayer {
+    private static final int STRIDE = DrawCommandBuffer.QUAD;
+
+    private final int bufferId;
+    private int capacity = 0;
+    private int size = 0;
+    private FloatBuffer rows = null;
+    private Texture[] textures = new Texture[0];
+
+    // The slots [dirtyFrom, dirtyTo) hold changes not yet uploaded.
+    private int dirtyFrom = 0;
+    private int dirtyTo = 0;
+
+    // Consecutive slots with the same texture, found again only when a texture changes.
+    private boolean runsChanged = true;
+    private int runCount = 0;
+    private int[] runStarts = new int[1];
+    private Texture[] runTextures = new Texture[1];
+
+    public InstanceLayer() {
+        bufferId = glGenBuffers();
+    }
+
+    /** Sets the number of slots.  Slots added are empty. */
+    public void resize(int size) {
+        if (size > capacity) {
+            int newCapacity = Math.max(size, capacity * 2);
+            rows = MemoryUtil.memRealloc(rows, newCapacity * STRIDE);
+            MemoryUtil.memSet(MemoryUtil.memAddress(rows) + (long) capacity * STRIDE * Float.BYTES, 0,
+                    (long) (newCapacity - capacity) * STRIDE * Float.BYTES);
+            textures = Arrays.copyOf(textures, newCapacity);
+            capacity = newCapacity;
+            // New storage has to be filled from scratch.
+            glBindBuffer(GL_ARRAY_BUFFER, bufferId);
+            glBufferData(GL_ARRAY_BUFFER, (long) capacity * STRIDE * Float.BYTES, GL_DYNAMIC_DRAW);
+            glBindBuffer(GL_ARRAY_BUFFER, 0);
+            markDirty(0, size);
+        }
+        for (int slot = size; slot < this.size; slot++) {
+            clear(slot);
+        }
+        this.size = size;
+        runsChanged = true;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /** Puts texture, or subImage (in pixels) of it, in the slot. */
+    public void set(int slot, Texture texture, float left, float top, float width, float height, float z, Rectangle subImage, Color color) {
+        set(slot, texture, left, top, width, height, z, subImage, 1, 0, 0, color);
+    }
+
+    /**
+     * Puts an animation in the slot: subImage (in pixels) of texture is its first frame, and each of
+     * the frames after it is frameStep pixels further right and shows for frameDuration seconds.
+     * The GPU plays it, so the slot does not change as it does.
+     */
+    public void set(int slot, Texture texture, float left, float top, float width, float height, float z, Rectangle subImage,
+                    int frames, float frameStep, float frameDuration, Color color) {
+        float u0 = 0.0f;
+        float v0 = 0.0f;
+        float u1 = 1.0f;
+        float v1 = 1.0f;
+        if (subImage != null) {
+            float textureWidth = texture.getWidth();
+            float textureHeight = texture.getHeight();
+            u0 = subImage.left / textureWidth;
+            v0 = subImage.top / textureHeight;
+            u1 = (subImage.left + subImage.width) / textureWidth;
+            v1 = (subImage.top + subImage.height) / textureHeight;
+        }
+
+        int i = slot * STRIDE;
+        boolean changed = textures[slot] != texture;
+        changed |= put(i + DrawCommandBuffer.LEFT, left);
+        changed |= put(i + DrawCommandBuffer.TOP, top);
+        changed |= put(i + DrawCommandBuffer.WIDTH, width);
+        changed |= put(i + DrawCommandBuffer.HEIGHT, height);
+        changed |= put(i + DrawCommandBuffer.Z, z);
+        changed |= put(i + DrawCommandBuffer.U0, u0);
+        changed |= put(i + DrawCommandBuffer.V0, v0);
+        changed |= put(i + DrawCommandBuffer.U1, u1);
+        changed |= put(i + DrawCommandBuffer.V1, v1);
+        changed |= put(i + DrawCommandBuffer.RED, color.r);
+        changed |= put(i + DrawCommandBuffer.GREEN, color.g);
+        changed |= put(i + DrawCommandBuffer.BLUE, color.b);
+        changed |= put(i + DrawCommandBuffer.ALPHA, color.a);
+        changed |= put(i + DrawCommandBuffer.FRAMES, frames);
+        changed |= put(i + DrawCommandBuffer.FRAME_DURATION, frameDuration);
+        changed |= put(i + DrawCommandBuffer.FRAME_STEP, frameStep / texture.getWidth());
+        if (changed) {
+            runsChanged |= textures[slot] != texture;
+            textures[slot] = texture;
+            markDirty(slot, slot + 1);
+        }
+    }
+
+    /** Empties the slot. */
+    public void clear(int slot) {
+        if (textures[slot] == null && rows.get(slot * STRIDE + DrawCommandBuffer.WIDTH) == 0) {
+            return;
+        }
+        for (int i = slot * STRIDE; i < (slot + 1) * STRIDE; i++) {
+            rows.put(i, 0);
+        }
+        textures[slot] = null;
+        runsChanged = true;
+        markDirty(slot, slot + 1);
+    }
+
+    public void cleanup() {
+        glDeleteBuffers(bufferId);
+        MemoryUtil.memFree(rows);
+    }
+
+    /** Binds the buffer after uploading whatever changed since the last upload. */
+    void bind() {
+        glBindBuffer(GL_ARRAY_BUFFER, bufferId);
+        if (dirtyFrom < dirtyTo) {
+            long offset = (long) dirtyFrom * STRIDE * Float.BYTES;
+            long bytes = (long) (dirtyTo - dirtyFrom) * STRIDE * Float.BYTES;
+            nglBufferSubData(GL_ARRAY_BUFFER, offset, bytes, MemoryUtil.memAddress(rows) + offset);
+            dirtyFrom = 0;
+            dirtyTo = 0;
+        }
+    }
+
+    /**
+     * The number of runs of slots sharing a texture; run i is the slots from getRunStart(i) up to
+     * getRunStart(i + 1).  Empty slots are folded into whichever run they sit in.
+     */
+    int getRunCount() {
+        if (runsChanged) {
+            findRuns();
+        }
+        return runCount;
+    }
+
+    int getRunStart(int run) {
+        return runStarts[run];
+    }
+
+    Texture getRunTexture(int run) {
+        return runTextures[run];
+    }
+
+    private void findRuns() {
+        runCount = 0;
+        for (int slot = 0; slot < size; slot++) {
+            Texture texture = textures[slot];
+            if (texture == null || (runCount > 0 && texture == runTextures[runCount - 1])) {
+                continue;
+            }
+            if (runCount + 1 >= runStarts.length) {
+                runStarts = Arrays.copyOf(runStarts, runStarts.length * 2);
+                runTextures = Arrays.copyOf(runTextures, runTextures.length * 2);
+            }
+            // The first run also takes any empty slots in front of it.
+            runStarts[runCount] = runCount == 0 ? 0 : slot;
+            runTextures[runCount++] = texture;
+        }
+        runStarts[runCount] = size;
+        runsChanged = false;
+    }
+
+    private boolean put(int index, float value) {
+        if (rows.get(index) == value) {
+            return false;
+        }
+        rows.put(index, value);
+        return true;
+    }
+
+    private void markDirty(int from, int to) {
+        if (dirtyFrom == dirtyTo) {
+            dirtyFrom = from;
+            dirtyTo = to;
+        } else {
+            dirtyFrom = Math.min(dirtyFrom, from);
+            dirtyTo = Math.max(dirtyTo, to);
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package edu.usu.graphics;
+
+import java.nio.ByteBuffer;
+
+import static org.lwjgl.opengl.GL32.*;
+import static org.lwjgl.system.MemoryUtil.memAddress;
+
+/**
+ * A GL buffer that vertex data is streamed through, frame after frame, without creating or
+ * deleting anything.  Each batch maps the next free range, writes straight into it and unmaps it;
+ * ranges are handed out one after another around the buffer like a ring.  When the ring is full the
+ * buffer is orphaned (given new storage with glBufferData) and writing starts again from the front,
+ * so the GPU can finish with the old storage while the CPU fills the new one, and mapping never has
+ * to wait for it.  A batch bigger than the whole buffer doubles it.
+ */
+class StreamBuffer {
+    // Ranges start on this boundary so every attribute offset is suitably aligned.
+    private static final int ALIGNMENT = 64;
+
+    private final int target;
+    private final int bufferId;
+    private long capacity;
+    private long offset = 0;
+    private long mappedOffset = 0;
+    private ByteBuffer mapped;
+
+    StreamBuffer(int target, long initialCapacity) {
+        this.target = target;
+        this.capacity = initialCapacity;
+        this.bufferId = glGenBuffers();
+        glBindBuffer(target, bufferId);
+        glBufferData(target, capacity, GL_STREAM_DRAW);
+        glBindBuffer(target, 0);
+    }
+
+    /**
+     * Binds the buffer and maps the next bytes of it for writing, returning the address to write to.
+     * Must be followed by unmap() before drawing.
+     */
+    long map(long bytes) {
+        glBindBuffer(target, bufferId);
+        if (offset + bytes > capacity) {
+            while (capacity < bytes) {
+                capacity *= 2;
+            }
+            glBufferData(target, capacity, GL_STREAM_DRAW);
+            offset = 0;
+        }
+        mapped = glMapBufferRange(target, offset, bytes,
+                GL_MAP_WRITE_BIT | GL_MAP_INVALIDATE_RANGE_BIT | GL_MAP_UNSYNCHRONIZED_BIT, mapped);
+        if (mapped == null) {
+            throw new IllegalStateException("Unable to map the vertex stream");
+        }
+        mappedOffset = offset;
+        offset += (bytes + ALIGNMENT - 1) / ALIGNMENT * ALIGNMENT;
+        return memAddress(mapped);
+    }
+
+    /** Binds the buffer, to point vertex attributes into it. */
+    void bind() {
+        glBindBuffer(target, bufferId);
+    }
+
+    /** Unmaps the range from map(), returning where in the buffer it starts. */
+    long unmap() {
+        glUnmapBuffer(target);
+        return mappedOffset;
+    }
+
+    void cleanup() {
+        glDeleteBuffers(bufferId);
+    }
+}
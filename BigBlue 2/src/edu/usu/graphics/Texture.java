@@ -81,6 +81,19 @@ public class Texture {
         }
     }
 
+    // --------------------------------------------------------------
+    //
+    // Builds a texture from raw RGBA pixels, width * height * 4 bytes.
+    // The TextureAtlas uses this to upload the pages it has packed
+    // sprites into.
+    //
+    // --------------------------------------------------------------
+    public Texture(int width, int height, ByteBuffer pixels) {
+        this.width = width;
+        this.height = height;
+        this.textureId = createTexture(pixels);
+    }
+
     public int getWidth() {
         return this.width;
     }
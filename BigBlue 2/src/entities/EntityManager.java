@@ -3,91 +3,731 @@ package entities;
 import components.Component;
 import components.NameComponent;
 import components.PositionComponent;
-import screens.GameplayScreen;
+import components.RuleComponent;
+import components.SpriteComponent;
+import util.IntList;
 import java.util.*;
+import java.util.function.IntConsumer;
 
+/**
+ * Component storage laid out as parallel arrays.  Live entities are packed into slots 0..count-1
+ * through a sparse set (slotOf maps entity id to slot, entityAt maps back), and each component
+ * type is a column indexed by slot.  Systems that touch every entity should loop over the slots
+ * with the *At accessors; getComponent is kept as a facade over the same columns.
+ */
 public class EntityManager {
+    private static final int NO_ENTITY = -1;
+    private static final int NO_SLOT = -1;
+    private static final int NO_NAME = -1;
+    private static final int NOT_INDEXED = -1;
+    private static final int OFF_GRID = -2;
+
+    private static final int POSITION = 0;
+    private static final int NAME = 1;
+    private static final int RULE = 2;
+    private static final int SPRITE = 3;
+
     private int nextEntityId = 0;
-    private final Map<Integer, List<Component>> entityComponents = new HashMap<>();
-    private final Map<Integer, Map<Class<?>, Component>> componentMap = new HashMap<>();
-    private final Set<Integer> allEntityIds = new HashSet<>();
-    private final GameplayScreen gameplayScreen;
+    private DestroyListener destroyListener;
+    private UndoJournal journal;
+
+    // Sparse set of live entities.
+    private int[] slotOf = new int[64];
+    private int[] entityAt = new int[64];
+    private int count = 0;
+
+    // Component columns, indexed by slot.
+    private boolean[] hasPosition = new boolean[64];
+    private int[] posX = new int[64];
+    private int[] posY = new int[64];
+    private int[] nameIds = new int[64];
+    private int[] wordIds = new int[64];
+    private RuleComponent.Type[] wordTypes = new RuleComponent.Type[64];
+    private SpriteComponent[] sprites = new SpriteComponent[64];
+    // The component objects handed in by callers, returned by getComponent and kept in sync with
+    // the primitive columns above.
+    private PositionComponent[] positionComponents = new PositionComponent[64];
+    private NameComponent[] nameComponents = new NameComponent[64];
+    private RuleComponent[] ruleComponents = new RuleComponent[64];
+
+    // Interned entity names and rule words; a name's id is its index in nameTable.
+    private final List<String> nameTable = new ArrayList<>();
+    private final Map<String, Integer> nameLookup = new HashMap<>();
+
+    // Tile occupancy index.  cellHeads holds the first entity on each tile and nextInCell chains
+    // the rest of that tile's occupants, so a lookup only touches the entities actually on the tile.
+    // Anything positioned outside the level bounds is chained from offGridHead instead.
+    private int gridWidth = 0;
+    private int gridHeight = 0;
+    private int[] cellHeads = new int[0];
+    private int offGridHead = NO_ENTITY;
+    private int[] nextInCell = new int[64];
+    private int[] cellOf = new int[64];
+
+    // Tiles whose text changed since RuleSystem last looked, as x, y pairs.  textLayoutReset means
+    // the whole board was replaced (level load, undo) and every line has to be read again.
+    private final IntList changedTextTiles = new IntList();
+    private boolean textLayoutReset = true;
+
+    // Zobrist hash of the board: the sum of a pseudo-random key for every (tile, noun) and
+    // (tile, word) pair present.  Keys are added and subtracted rather than XORed so that two
+    // identical entities stacked on one tile do not cancel each other out.
+    private static final long ZOBRIST_SEED = 0x6A09E667F3BCC908L;
+    private long stateHash = 0;
+
+    public interface DestroyListener {
+        void onEntityDestroyed(int entityId, int x, int y);
+    }
+
+    public EntityManager() {
+        Arrays.fill(slotOf, NO_SLOT);
+        Arrays.fill(nameIds, NO_NAME);
+        Arrays.fill(wordIds, NO_NAME);
+        Arrays.fill(cellOf, NOT_INDEXED);
+    }
+
+    /** Sizes the occupancy index to the level and re-indexes every positioned entity. */
+    public void setGridSize(int width, int height) {
+        this.gridWidth = width;
+        this.gridHeight = height;
+        this.cellHeads = new int[width * height];
+        rebuildIndex();
+        resetTextLayout();
+    }
+
+    public int getGridWidth() {
+        return gridWidth;
+    }
+
+    public int getGridHeight() {
+        return gridHeight;
+    }
+
+    /** Told about every entity destroyed by game rules; undo removing an entity is not reported. */
+    public void setDestroyListener(DestroyListener destroyListener) {
+        this.destroyListener = destroyListener;
+    }
 
-    public EntityManager(GameplayScreen gameplayScreen) {
-        this.gameplayScreen = gameplayScreen;
+    /** Every change made while the journal has a turn open is recorded there so it can be undone. */
+    public void setUndoJournal(UndoJournal journal) {
+        this.journal = journal;
+    }
+
+    public UndoJournal getUndoJournal() {
+        return journal;
     }
 
     public int createEntity() {
         int id = nextEntityId++;
-        entityComponents.put(id, new ArrayList<>());
-        componentMap.put(id, new HashMap<>());
-        allEntityIds.add(id);
+        activate(id);
+        if (journal != null) {
+            journal.record(UndoJournal.CREATE, id, 0, 0, null);
+        }
         return id;
     }
 
+    /** Makes a destroyed entity id live again with no components, e.g. to rebuild a saved position. */
+    public void reviveEntity(int entityId) {
+        if (getSlot(entityId) != NO_SLOT) return;
+        activate(entityId);
+        nextEntityId = Math.max(nextEntityId, entityId + 1);
+        if (journal != null) {
+            journal.record(UndoJournal.CREATE, entityId, 0, 0, null);
+        }
+    }
+
     public void destroyEntity(int entityId) {
-        PositionComponent pos = getComponent(entityId, PositionComponent.class);
-        if (pos != null) {
-            gameplayScreen.onEntityRemoved(pos.x, pos.y);
+        removeEntity(entityId, true);
+    }
+
+    private void removeEntity(int entityId, boolean notify) {
+        int slot = getSlot(entityId);
+        if (slot == NO_SLOT) return;
+        if (journal != null && journal.isRecording()) {
+            Component[] components = {positionComponents[slot], nameComponents[slot], ruleComponents[slot], sprites[slot]};
+            journal.record(UndoJournal.DESTROY, entityId, 0, 0, components);
+        }
+        stateHash -= zobristKey(slot);
+        if (hasPosition[slot]) {
+            unindex(entityId);
+            if (wordIds[slot] != NO_NAME) {
+                markTextTile(posX[slot], posY[slot]);
+            }
+            if (notify && destroyListener != null) {
+                destroyListener.onEntityDestroyed(entityId, posX[slot], posY[slot]);
+            }
+        }
+        int last = count - 1;
+        if (slot != last) {
+            moveSlot(last, slot);
         }
-        componentMap.remove(entityId);
-        entityComponents.remove(entityId);
-        allEntityIds.remove(entityId);
+        clearSlot(last);
+        slotOf[entityId] = NO_SLOT;
+        count--;
     }
 
     public void addComponent(int entityId, Component component) {
-        List<Component> components = entityComponents.get(entityId);
-        if (components != null) {
-            components.add(component);
-            Map<Class<?>, Component> entityComps = componentMap.computeIfAbsent(entityId, k -> new HashMap<>());
-            entityComps.put(component.getClass(), component);
+        int slot = getSlot(entityId);
+        if (slot == NO_SLOT) return;
+        if (journal != null && journal.isRecording()) {
+            int kind = kindOf(component);
+            journal.record(UndoJournal.COMPONENT, entityId, kind, 0, componentAt(slot, kind));
+        }
+        long previousKey = zobristKey(slot);
+        if (component instanceof PositionComponent pos) {
+            if (hasPosition[slot]) {
+                unindex(entityId);
+                if (wordIds[slot] != NO_NAME) {
+                    markTextTile(posX[slot], posY[slot]);
+                }
+            }
+            positionComponents[slot] = pos;
+            hasPosition[slot] = true;
+            posX[slot] = pos.x;
+            posY[slot] = pos.y;
+            index(entityId, pos.x, pos.y);
+            if (wordIds[slot] != NO_NAME) {
+                markTextTile(pos.x, pos.y);
+            }
+        } else if (component instanceof NameComponent name) {
+            nameComponents[slot] = name;
+            nameIds[slot] = internName(name.name);
+        } else if (component instanceof RuleComponent rule) {
+            ruleComponents[slot] = rule;
+            wordIds[slot] = internName(rule.word);
+            wordTypes[slot] = rule.type;
+            if (hasPosition[slot]) {
+                markTextTile(posX[slot], posY[slot]);
+            }
+        } else if (component instanceof SpriteComponent sprite) {
+            sprites[slot] = sprite;
+        } else {
+            throw new IllegalArgumentException("Unsupported component type: " + component.getClass().getName());
         }
+        stateHash += zobristKey(slot) - previousKey;
     }
 
     public <T extends Component> T getComponent(int entityId, Class<T> componentClass) {
-        Map<Class<?>, Component> components = componentMap.get(entityId);
-        if (components == null) return null;
-        Component component = components.get(componentClass);
+        int slot = getSlot(entityId);
+        if (slot == NO_SLOT) return null;
+        Component component = null;
+        if (componentClass == PositionComponent.class) {
+            component = positionComponents[slot];
+        } else if (componentClass == NameComponent.class) {
+            component = nameComponents[slot];
+        } else if (componentClass == RuleComponent.class) {
+            component = ruleComponents[slot];
+        } else if (componentClass == SpriteComponent.class) {
+            component = sprites[slot];
+        }
         if (component == null) return null;
         return componentClass.cast(component);
     }
 
+    /**
+     * Moves an entity to a new tile.  Positions must be changed through here rather than by writing
+     * to the PositionComponent so the columns and the occupancy index stay in step.
+     */
+    public void setPosition(int entityId, int x, int y) {
+        int slot = getSlot(entityId);
+        if (slot == NO_SLOT || !hasPosition[slot]) return;
+        if (journal != null) {
+            journal.record(UndoJournal.MOVE, entityId, posX[slot], posY[slot], null);
+        }
+        long previousKey = zobristKey(slot);
+        unindex(entityId);
+        if (wordIds[slot] != NO_NAME) {
+            markTextTile(posX[slot], posY[slot]);
+            markTextTile(x, y);
+        }
+        posX[slot] = x;
+        posY[slot] = y;
+        positionComponents[slot].x = x;
+        positionComponents[slot].y = y;
+        index(entityId, x, y);
+        stateHash += zobristKey(slot) - previousKey;
+    }
+
+    /** Renames an entity, e.g. when a "Rock Is Flag" rule transforms it. */
+    public void setName(int entityId, String name) {
+        int slot = getSlot(entityId);
+        if (slot == NO_SLOT) return;
+        if (nameComponents[slot] == null) {
+            addComponent(entityId, new NameComponent(name));
+            return;
+        }
+        if (journal != null) {
+            journal.record(UndoJournal.RENAME, entityId, nameIds[slot], 0, null);
+        }
+        long previousKey = zobristKey(slot);
+        nameComponents[slot].name = name;
+        nameIds[slot] = internName(name);
+        stateHash += zobristKey(slot) - previousKey;
+    }
+
+    public boolean undoTurn() {
+        return undoTurn(null);
+    }
+
+    /**
+     * Reverts the most recent turn in the undo journal, newest change first, adding every entity
+     * whose name changed back to {@code renamed} if it is not null.  Returns false if there is
+     * nothing to undo.
+     */
+    public boolean undoTurn(IntList renamed) {
+        if (journal == null || !journal.canUndo()) return false;
+        while (true) {
+            int type = journal.lastType();
+            int entityId = journal.lastEntity();
+            switch (type) {
+                case UndoJournal.MOVE:
+                    setPosition(entityId, journal.lastA(), journal.lastB());
+                    break;
+                case UndoJournal.RENAME:
+                    restoreName(entityId, journal.lastA());
+                    if (renamed != null) {
+                        renamed.add(entityId);
+                    }
+                    break;
+                case UndoJournal.CREATE:
+                    removeEntity(entityId, false);
+                    if (entityId == nextEntityId - 1) {
+                        nextEntityId--;
+                    }
+                    break;
+                case UndoJournal.DESTROY:
+                    activate(entityId);
+                    for (Component component : (Component[]) journal.lastPayload()) {
+                        if (component != null) {
+                            addComponent(entityId, component);
+                        }
+                    }
+                    break;
+                case UndoJournal.COMPONENT:
+                    restoreComponent(entityId, journal.lastA(), (Component) journal.lastPayload());
+                    if (renamed != null && journal.lastA() == NAME) {
+                        renamed.add(entityId);
+                    }
+                    break;
+            }
+            journal.removeLast();
+            if (type == UndoJournal.TURN) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Calls {@code action} with every entity on the tile, without allocating.  The action must not
+     * move, create or destroy entities; collect the ids first if the tile is going to change.
+     */
+    public void forEachAt(int x, int y, IntConsumer action) {
+        if (isOnGrid(x, y)) {
+            int id = cellHeads[y * gridWidth + x];
+            while (id != NO_ENTITY) {
+                int next = nextInCell[id];
+                action.accept(id);
+                id = next;
+            }
+            return;
+        }
+        int id = offGridHead;
+        while (id != NO_ENTITY) {
+            int next = nextInCell[id];
+            int slot = slotOf[id];
+            if (posX[slot] == x && posY[slot] == y) {
+                action.accept(id);
+            }
+            id = next;
+        }
+    }
+
+    /**
+     * A 64-bit fingerprint of what is on every tile, kept up to date on each change.  Two boards
+     * with the same nouns and words on the same tiles hash the same whatever their entity ids.
+     */
+    public long stateHash() {
+        return stateHash;
+    }
+
+    /** True if the board was replaced wholesale since the last clearTextChanges. */
+    public boolean isTextLayoutReset() {
+        return textLayoutReset;
+    }
+
+    /**
+     * Tiles a text block arrived on or left since the last clearTextChanges, as x, y pairs.  Only
+     * meaningful while isTextLayoutReset is false.
+     */
+    public IntList getChangedTextTiles() {
+        return changedTextTiles;
+    }
+
+    public void clearTextChanges() {
+        changedTextTiles.clear();
+        textLayoutReset = false;
+    }
+
+    // --------------------------------------------------------------
+    //
+    // Dense access.  Slots run from 0 to getEntityCount() - 1 and are only
+    // stable until the next destroyEntity, which swaps the last slot into
+    // the hole.
+    //
+    // --------------------------------------------------------------
+    public int getEntityCount() {
+        return count;
+    }
+
+    public int getEntityIdAt(int slot) {
+        return entityAt[slot];
+    }
+
+    public boolean hasPositionAt(int slot) {
+        return hasPosition[slot];
+    }
+
+    public int getXAt(int slot) {
+        return posX[slot];
+    }
+
+    public int getYAt(int slot) {
+        return posY[slot];
+    }
+
+    /** The interned name id, or -1 if the entity has no NameComponent. */
+    public int getNameIdAt(int slot) {
+        return nameIds[slot];
+    }
+
+    /** The interned rule word id, or -1 if the entity is not a text block. */
+    public int getWordIdAt(int slot) {
+        return wordIds[slot];
+    }
+
+    public boolean isTextAt(int slot) {
+        return wordIds[slot] != NO_NAME;
+    }
+
+    public RuleComponent.Type getWordTypeAt(int slot) {
+        return wordTypes[slot];
+    }
+
+    public SpriteComponent getSpriteAt(int slot) {
+        return sprites[slot];
+    }
+
+    /** The slot currently holding the entity, or -1 if it is not active. */
+    public int getSlot(int entityId) {
+        return entityId >= 0 && entityId < slotOf.length ? slotOf[entityId] : NO_SLOT;
+    }
+
+    public int getX(int entityId) {
+        return posX[slotOf[entityId]];
+    }
+
+    public int getY(int entityId) {
+        return posY[slotOf[entityId]];
+    }
+
+    public int getNameId(int entityId) {
+        int slot = getSlot(entityId);
+        return slot == NO_SLOT ? NO_NAME : nameIds[slot];
+    }
+
+    public boolean isText(int entityId) {
+        int slot = getSlot(entityId);
+        return slot != NO_SLOT && wordIds[slot] != NO_NAME;
+    }
+
+    public int internName(String name) {
+        Integer id = nameLookup.get(name);
+        if (id == null) {
+            id = nameTable.size();
+            nameTable.add(name);
+            nameLookup.put(name, id);
+        }
+        return id;
+    }
+
+    /** The id of an already interned name, or -1 if no entity has ever used it. */
+    public int findNameId(String name) {
+        Integer id = nameLookup.get(name);
+        return id == null ? NO_NAME : id;
+    }
+
+    public String getNameString(int nameId) {
+        return nameId == NO_NAME ? null : nameTable.get(nameId);
+    }
+
+    public int getNameCount() {
+        return nameTable.size();
+    }
+
     public void restoreState(GameState state) {
-        this.entityComponents.clear();
-        this.entityComponents.putAll(state.getEntityComponents());
-        this.allEntityIds.clear();
-        this.allEntityIds.addAll(state.getAllEntityIds());
-        this.componentMap.clear();
-        for (Map.Entry<Integer, List<Component>> entry : entityComponents.entrySet()) {
+        clear();
+        for (Map.Entry<Integer, List<Component>> entry : state.getEntityComponents().entrySet()) {
             int entityId = entry.getKey();
-            Map<Class<?>, Component> compMap = new HashMap<>();
+            nextEntityId = Math.max(nextEntityId, entityId + 1);
+            activate(entityId);
             for (Component comp : entry.getValue()) {
-                compMap.put(comp.getClass(), comp);
+                addComponent(entityId, comp);
             }
-            componentMap.put(entityId, compMap);
         }
     }
 
     public Set<Integer> getAllEntityIds() {
-        return new HashSet<>(allEntityIds);
+        Set<Integer> ids = new HashSet<>();
+        for (int slot = 0; slot < count; slot++) {
+            ids.add(entityAt[slot]);
+        }
+        return ids;
     }
 
     public boolean isEntityActive(int entityId) {
-        return allEntityIds.contains(entityId);
+        return getSlot(entityId) != NO_SLOT;
     }
 
     public String getEntityName(int entityId) {
-        NameComponent nameComp = getComponent(entityId, NameComponent.class);
-        return nameComp != null ? nameComp.name : null;
+        return getNameString(getNameId(entityId));
     }
 
     public void clear() {
-        entityComponents.clear();
-        componentMap.clear();
-        allEntityIds.clear();
+        for (int slot = 0; slot < count; slot++) {
+            slotOf[entityAt[slot]] = NO_SLOT;
+            clearSlot(slot);
+        }
+        count = 0;
+        nextEntityId = 0;
+        stateHash = 0;
+        rebuildIndex();
+        resetTextLayout();
+        if (journal != null) {
+            journal.clear();
+        }
     }
 
     public GameState saveState() {
-        return new GameState(entityComponents, allEntityIds);
+        Map<Integer, List<Component>> entityComponents = new HashMap<>();
+        for (int slot = 0; slot < count; slot++) {
+            List<Component> components = new ArrayList<>();
+            if (positionComponents[slot] != null) components.add(positionComponents[slot]);
+            if (nameComponents[slot] != null) components.add(nameComponents[slot]);
+            if (ruleComponents[slot] != null) components.add(ruleComponents[slot]);
+            if (sprites[slot] != null) components.add(sprites[slot]);
+            entityComponents.put(entityAt[slot], components);
+        }
+        return new GameState(entityComponents, entityComponents.keySet());
+    }
+
+    private void activate(int entityId) {
+        ensureEntityCapacity(entityId);
+        ensureSlotCapacity(count);
+        int slot = count++;
+        slotOf[entityId] = slot;
+        entityAt[slot] = entityId;
+    }
+
+    private void restoreName(int entityId, int nameId) {
+        int slot = getSlot(entityId);
+        if (slot == NO_SLOT) return;
+        long previousKey = zobristKey(slot);
+        if (nameId == NO_NAME) {
+            nameComponents[slot] = null;
+            nameIds[slot] = NO_NAME;
+        } else {
+            nameComponents[slot].name = nameTable.get(nameId);
+            nameIds[slot] = nameId;
+        }
+        stateHash += zobristKey(slot) - previousKey;
+    }
+
+    private void restoreComponent(int entityId, int kind, Component previous) {
+        if (previous != null) {
+            addComponent(entityId, previous);
+            return;
+        }
+        int slot = getSlot(entityId);
+        if (slot == NO_SLOT) return;
+        long previousKey = zobristKey(slot);
+        switch (kind) {
+            case POSITION:
+                if (hasPosition[slot]) {
+                    unindex(entityId);
+                    if (wordIds[slot] != NO_NAME) {
+                        markTextTile(posX[slot], posY[slot]);
+                    }
+                }
+                hasPosition[slot] = false;
+                positionComponents[slot] = null;
+                break;
+            case NAME:
+                nameComponents[slot] = null;
+                nameIds[slot] = NO_NAME;
+                break;
+            case RULE:
+                if (hasPosition[slot]) {
+                    markTextTile(posX[slot], posY[slot]);
+                }
+                ruleComponents[slot] = null;
+                wordIds[slot] = NO_NAME;
+                wordTypes[slot] = null;
+                break;
+            case SPRITE:
+                sprites[slot] = null;
+                break;
+        }
+        stateHash += zobristKey(slot) - previousKey;
+    }
+
+    private static int kindOf(Component component) {
+        if (component instanceof PositionComponent) return POSITION;
+        if (component instanceof NameComponent) return NAME;
+        if (component instanceof RuleComponent) return RULE;
+        if (component instanceof SpriteComponent) return SPRITE;
+        throw new IllegalArgumentException("Unsupported component type: " + component.getClass().getName());
+    }
+
+    private Component componentAt(int slot, int kind) {
+        switch (kind) {
+            case POSITION: return positionComponents[slot];
+            case NAME: return nameComponents[slot];
+            case RULE: return ruleComponents[slot];
+            default: return sprites[slot];
+        }
+    }
+
+    private void moveSlot(int from, int to) {
+        int entityId = entityAt[from];
+        entityAt[to] = entityId;
+        slotOf[entityId] = to;
+        hasPosition[to] = hasPosition[from];
+        posX[to] = posX[from];
+        posY[to] = posY[from];
+        nameIds[to] = nameIds[from];
+        wordIds[to] = wordIds[from];
+        wordTypes[to] = wordTypes[from];
+        sprites[to] = sprites[from];
+        positionComponents[to] = positionComponents[from];
+        nameComponents[to] = nameComponents[from];
+        ruleComponents[to] = ruleComponents[from];
+    }
+
+    private void clearSlot(int slot) {
+        hasPosition[slot] = false;
+        nameIds[slot] = NO_NAME;
+        wordIds[slot] = NO_NAME;
+        wordTypes[slot] = null;
+        sprites[slot] = null;
+        positionComponents[slot] = null;
+        nameComponents[slot] = null;
+        ruleComponents[slot] = null;
+    }
+
+    private void ensureEntityCapacity(int entityId) {
+        if (entityId >= slotOf.length) {
+            int oldLength = slotOf.length;
+            int newLength = Math.max(entityId + 1, oldLength * 2);
+            slotOf = Arrays.copyOf(slotOf, newLength);
+            nextInCell = Arrays.copyOf(nextInCell, newLength);
+            cellOf = Arrays.copyOf(cellOf, newLength);
+            Arrays.fill(slotOf, oldLength, newLength, NO_SLOT);
+            Arrays.fill(cellOf, oldLength, newLength, NOT_INDEXED);
+        }
+    }
+
+    private void ensureSlotCapacity(int slot) {
+        if (slot >= entityAt.length) {
+            int oldLength = entityAt.length;
+            int newLength = oldLength * 2;
+            entityAt = Arrays.copyOf(entityAt, newLength);
+            hasPosition = Arrays.copyOf(hasPosition, newLength);
+            posX = Arrays.copyOf(posX, newLength);
+            posY = Arrays.copyOf(posY, newLength);
+            nameIds = Arrays.copyOf(nameIds, newLength);
+            wordIds = Arrays.copyOf(wordIds, newLength);
+            wordTypes = Arrays.copyOf(wordTypes, newLength);
+            sprites = Arrays.copyOf(sprites, newLength);
+            positionComponents = Arrays.copyOf(positionComponents, newLength);
+            nameComponents = Arrays.copyOf(nameComponents, newLength);
+            ruleComponents = Arrays.copyOf(ruleComponents, newLength);
+            Arrays.fill(nameIds, oldLength, newLength, NO_NAME);
+            Arrays.fill(wordIds, oldLength, newLength, NO_NAME);
+        }
+    }
+
+    private long zobristKey(int slot) {
+        if (!hasPosition[slot]) return 0;
+        if (wordIds[slot] != NO_NAME) return zobristKey(posX[slot], posY[slot], wordIds[slot], 1);
+        if (nameIds[slot] != NO_NAME) return zobristKey(posX[slot], posY[slot], nameIds[slot], 0);
+        return 0;
+    }
+
+    /** The key for a noun (kind 0) or word (kind 1) on a tile, from a splitmix64 scramble of the four. */
+    private static long zobristKey(int x, int y, int id, int kind) {
+        long z = ZOBRIST_SEED + x * 0x9E3779B97F4A7C15L + y * 0xC2B2AE3D27D4EB4FL + (id * 2L + kind) * 0x165667B19E3779F9L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    private void markTextTile(int x, int y) {
+        if (!textLayoutReset && isOnGrid(x, y)) {
+            changedTextTiles.add(x);
+            changedTextTiles.add(y);
+        }
+    }
+
+    private void resetTextLayout() {
+        changedTextTiles.clear();
+        textLayoutReset = true;
+    }
+
+    private boolean isOnGrid(int x, int y) {
+        return x >= 0 && x < gridWidth && y >= 0 && y < gridHeight;
+    }
+
+    private void index(int entityId, int x, int y) {
+        if (isOnGrid(x, y)) {
+            int cell = y * gridWidth + x;
+            nextInCell[entityId] = cellHeads[cell];
+            cellHeads[cell] = entityId;
+            cellOf[entityId] = cell;
+        } else {
+            nextInCell[entityId] = offGridHead;
+            offGridHead = entityId;
+            cellOf[entityId] = OFF_GRID;
+        }
+    }
+
+    private void unindex(int entityId) {
+        int cell = cellOf[entityId];
+        if (cell == NOT_INDEXED) return;
+        int head = cell == OFF_GRID ? offGridHead : cellHeads[cell];
+        if (head == entityId) {
+            if (cell == OFF_GRID) {
+                offGridHead = nextInCell[entityId];
+            } else {
+                cellHeads[cell] = nextInCell[entityId];
+            }
+        } else {
+            int previous = head;
+            while (nextInCell[previous] != entityId) {
+                previous = nextInCell[previous];
+            }
+            nextInCell[previous] = nextInCell[entityId];
+        }
+        cellOf[entityId] = NOT_INDEXED;
+    }
+
+    private void rebuildIndex() {
+        Arrays.fill(cellHeads, NO_ENTITY);
+        Arrays.fill(cellOf, NOT_INDEXED);
+        offGridHead = NO_ENTITY;
+        for (int slot = 0; slot < count; slot++) {
+            if (hasPosition[slot]) {
+                index(entityAt[slot], posX[slot], posY[slot]);
+            }
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,181 @@
+package entities;
+
+import java.util.Arrays;
+
+/**
+ * The undo history, kept as the individual changes each turn made rather than a copy of the
+ * whole board per turn.  EntityManager writes a record for every move, rename, component swap,
+ * creation and destruction while a turn is open, and undoes a turn by reading its records back
+ * newest first.
+ *
+ * Records sit in a ring of four ints each (type, entity, and two arguments) with a parallel
+ * payload slot for the components of destroyed or replaced entities.  When the journal grows past
+ * its byte budget the oldest turns are dropped, after which the start of the level can no longer
+ * be reached by undoing and isComplete() turns false.
+ */
+public class UndoJournal {
+    static final int TURN = 0;
+    static final int MOVE = 1;
+    static final int RENAME = 2;
+    static final int CREATE = 3;
+    static final int DESTROY = 4;
+    static final int COMPONENT = 5;
+
+    private static final int FIELDS = 4;
+    // Rough heap cost of one record: four ints plus a payload reference, and the array holding a
+    // destroyed entity's components when there is one.
+    private static final int RECORD_BYTES = FIELDS * Integer.BYTES + 8;
+    private static final int PAYLOAD_BYTES = 48;
+
+    private final long byteBudget;
+    private int[] records = new int[64 * FIELDS];
+    private Object[] payloads = new Object[64];
+    private int head = 0;
+    private int size = 0;
+    private int turns = 0;
+    private long bytes = 0;
+    private boolean recording = false;
+    private boolean complete = true;
+
+    public UndoJournal(long byteBudget) {
+        this.byteBudget = byteBudget;
+    }
+
+    /** Starts recording the changes of a new turn. */
+    public void beginTurn() {
+        push(TURN, 0, 0, 0, null);
+        turns++;
+        recording = true;
+    }
+
+    /** Stops recording.  A turn that changed nothing is dropped; returns whether it was kept. */
+    public boolean endTurn() {
+        recording = false;
+        if (size > 0 && lastType() == TURN) {
+            removeLast();
+            return false;
+        }
+        trimToBudget();
+        return true;
+    }
+
+    public boolean isRecording() {
+        return recording;
+    }
+
+    public boolean canUndo() {
+        return turns > 0 && !recording;
+    }
+
+    /** False once turns have been dropped to stay within the byte budget. */
+    public boolean isComplete() {
+        return complete;
+    }
+
+    public int getTurnCount() {
+        return turns;
+    }
+
+    public long getByteSize() {
+        return bytes;
+    }
+
+    public void clear() {
+        Arrays.fill(payloads, null);
+        head = 0;
+        size = 0;
+        turns = 0;
+        bytes = 0;
+        recording = false;
+        complete = true;
+    }
+
+    void record(int type, int entityId, int a, int b, Object payload) {
+        if (recording) {
+            push(type, entityId, a, b, payload);
+        }
+    }
+
+    int lastType() {
+        return records[index(size - 1) * FIELDS];
+    }
+
+    int lastEntity() {
+        return records[index(size - 1) * FIELDS + 1];
+    }
+
+    int lastA() {
+        return records[index(size - 1) * FIELDS + 2];
+    }
+
+    int lastB() {
+        return records[index(size - 1) * FIELDS + 3];
+    }
+
+    Object lastPayload() {
+        return payloads[index(size - 1)];
+    }
+
+    /** Drops the newest record; popping a turn marker closes out that turn. */
+    void removeLast() {
+        int i = index(size - 1);
+        if (records[i * FIELDS] == TURN) {
+            turns--;
+        }
+        bytes -= cost(payloads[i]);
+        payloads[i] = null;
+        size--;
+    }
+
+    private void push(int type, int entityId, int a, int b, Object payload) {
+        if (size == payloads.length) {
+            grow();
+        }
+        int i = index(size);
+        int base = i * FIELDS;
+        records[base] = type;
+        records[base + 1] = entityId;
+        records[base + 2] = a;
+        records[base + 3] = b;
+        payloads[i] = payload;
+        size++;
+        bytes += cost(payload);
+    }
+
+    /** Drops whole turns from the old end until the journal fits, never touching the newest turn. */
+    private void trimToBudget() {
+        while (bytes > byteBudget && turns > 1) {
+            do {
+                int i = head;
+                bytes -= cost(payloads[i]);
+                payloads[i] = null;
+                head = (head + 1) % payloads.length;
+                size--;
+            } while (size > 0 && records[head * FIELDS] != TURN);
+            turns--;
+            complete = false;
+        }
+    }
+
+    private void grow() {
+        int capacity = payloads.length;
+        int[] newRecords = new int[capacity * 2 * FIELDS];
+        Object[] newPayloads = new Object[capacity * 2];
+        for (int n = 0; n < size; n++) {
+            int i = index(n);
+            System.arraycopy(records, i * FIELDS, newRecords, n * FIELDS, FIELDS);
+            newPayloads[n] = payloads[i];
+        }
+        records = newRecords;
+        payloads = newPayloads;
+        head = 0;
+    }
+
+    private int index(int n) {
+        return (head + n) % payloads.length;
+    }
+
+    private static long cost(Object payload) {
+        return payload == null ? RECORD_BYTES : RECORD_BYTES + PAYLOAD_BYTES;
+    }
+}
@@ -0,0 +1,31 @@
+package profiling;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/** A JFR event for one frame of ScreenManager's loop, without the wait for the next frame. */
+@Name("bigblue.Frame")
+@Label("Frame")
+@Category({"Big Blue", "Screens"})
+@Description("Polling input, the fixed updates due, and drawing one frame")
+@StackTrace(false)
+public class FrameEvent extends Event {
+    private static final EventType TYPE = EventType.getEventType(FrameEvent.class);
+
+    /** Whether a recording is taking these events, so that nothing is allocated for frames when none is. */
+    public static boolean isRecording() {
+        return TYPE.isEnabled();
+    }
+
+    @Label("Updates")
+    @Description("Fixed update steps run in the frame")
+    public int updates;
+
+    @Label("Draw Calls")
+    public int drawCalls;
+}
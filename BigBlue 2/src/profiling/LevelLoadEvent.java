@@ -0,0 +1,30 @@
+package profiling;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/** A JFR event for the gameplay screen setting up a level, sprites and all. */
+@Name("bigblue.LevelLoad")
+@Label("Level Load")
+@Category({"Big Blue", "Screens"})
+@Description("Loading a level into the simulation and giving its entities their sprites")
+@StackTrace(false)
+public class LevelLoadEvent extends Event {
+    @Label("Level")
+    public String level;
+
+    @Label("Entities")
+    public int entities;
+
+    @Label("Sprite Sheets")
+    @Description("Sprite sheets the level draws from")
+    public int spriteSheets;
+
+    @Label("Textures Loaded")
+    @Description("Sprite sheets the previous level did not already hold")
+    public int texturesLoaded;
+}
@@ -0,0 +1,138 @@
+package profiling;
+
+import com.sun.management.ThreadMXBean;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Locale;
+
+/**
+ * Where a frame's time goes.  Callers time a section by taking start() before it and passing that to
+ * end() after; each section's times go into a Histogram, as do a few per-frame counts.  Every
+ * histogram can be recorded into from any thread.
+ *
+ * Profiler.NONE records nothing and is what code runs with when nobody is profiling it, such as the
+ * solvers' simulations.  Code that is profiled also emits JFR events, so recordings only show the
+ * game being played.
+ */
+public class Profiler {
+    public enum Section {
+        FRAME("Frame"),
+        INPUT("Input"),
+        UPDATE("Update"),
+        RENDER("Render"),
+        GRAPHICS_END("Graphics end"),
+        RULES("Rules"),
+        MOVEMENT("Movement"),
+        CONDITIONS("Conditions"),
+        PARTICLES("Particle update");
+
+        public final String label;
+
+        Section(String label) {
+            this.label = label;
+        }
+    }
+
+    public enum Counter {
+        DRAW_CALLS("Draw calls"),
+        ENTITIES("Entities"),
+        PARTICLES("Particles"),
+        ALLOCATED_BYTES("Allocated bytes");
+
+        public final String label;
+
+        Counter(String label) {
+            this.label = label;
+        }
+    }
+
+    public static final Profiler NONE = new Profiler(false);
+
+    private final boolean enabled;
+    private final Histogram[] sections = new Histogram[Section.values().length];
+    private final Histogram[] counters = new Histogram[Counter.values().length];
+    private final ThreadMXBean threads = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+    private long frameStart;
+    private long frameAllocated;
+
+    public Profiler() {
+        this(true);
+    }
+
+    private Profiler(boolean enabled) {
+        this.enabled = enabled;
+        for (int i = 0; i < sections.length; i++) {
+            sections[i] = new Histogram();
+        }
+        for (int i = 0; i < counters.length; i++) {
+            counters[i] = new Histogram();
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /** The time to pass to end(), once the section is done. */
+    public long start() {
+        return enabled ? System.nanoTime() : 0;
+    }
+
+    public void end(Section section, long start) {
+        if (enabled) {
+            sections[section.ordinal()].record(System.nanoTime() - start);
+        }
+    }
+
+    public void count(Counter counter, long value) {
+        if (enabled) {
+            counters[counter.ordinal()].record(value);
+        }
+    }
+
+    /** Starts timing a frame, and counting what the calling thread allocates in it. */
+    public void beginFrame() {
+        if (enabled) {
+            frameStart = System.nanoTime();
+            frameAllocated = threads.getCurrentThreadAllocatedBytes();
+        }
+    }
+
+    /** Records the frame's time and allocations, which must be on the thread that began it. */
+    public void endFrame() {
+        if (enabled) {
+            sections[Section.FRAME.ordinal()].record(System.nanoTime() - frameStart);
+            counters[Counter.ALLOCATED_BYTES.ordinal()].record(threads.getCurrentThreadAllocatedBytes() - frameAllocated);
+        }
+    }
+
+    public Histogram get(Section section) {
+        return sections[section.ordinal()];
+    }
+
+    public Histogram get(Counter counter) {
+        return counters[counter.ordinal()];
+    }
+
+    /** Writes a row per section and counter: its count, mean, p50, p99 and max. */
+    public void writeCsv(Path path) throws IOException {
+        try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(path))) {
+            out.println("metric,unit,count,mean,p50,p99,max");
+            for (Section section : Section.values()) {
+                writeRow(out, section.label, "ns", get(section));
+            }
+            for (Counter counter : Counter.values()) {
+                writeRow(out, counter.label, counter == Counter.ALLOCATED_BYTES ? "bytes" : "count", get(counter));
+            }
+        }
+    }
+
+    private static void writeRow(PrintWriter out, String metric, String unit, Histogram histogram) {
+        out.printf(Locale.ROOT, "%s,%s,%d,%.1f,%d,%d,%d%n", metric, unit, histogram.getCount(), histogram.getMean(),
+                histogram.getPercentile(50), histogram.getPercentile(99), histogram.getMax());
+    }
+}
@@ -0,0 +1,70 @@
+package profiling;
+
+import edu.usu.graphics.Color;
+import edu.usu.graphics.Font;
+import edu.usu.graphics.Graphics2D;
+
+/**
+ * Draws a Profiler's p50, p99 and max for every section and counter in the corner of the screen.
+ * The text is rebuilt twice a second rather than every frame, so it can be read and so the overlay
+ * does not add its own allocations to every frame it measures.
+ */
+public class ProfilerOverlay {
+    private static final double REFRESH_SECONDS = 0.5;
+    private static final float LINE_HEIGHT = 0.03f;
+    // In front of everything else on screen.
+    private static final float Z = 0.99f;
+
+    private final Profiler profiler;
+    private final Font font = new Font("resources/fonts/Roboto-Bold.ttf", 32, true);
+    private final String[] lines = new String[Profiler.Section.values().length + Profiler.Counter.values().length];
+    private boolean visible;
+    private double sinceRefresh = REFRESH_SECONDS;
+
+    public ProfilerOverlay(Profiler profiler) {
+        this.profiler = profiler;
+    }
+
+    public boolean isVisible() {
+        return visible;
+    }
+
+    public void toggle() {
+        visible = !visible;
+        sinceRefresh = REFRESH_SECONDS;
+    }
+
+    public void update(double elapsedTime) {
+        if (!visible) {
+            return;
+        }
+        sinceRefresh += elapsedTime;
+        if (sinceRefresh >= REFRESH_SECONDS) {
+            sinceRefresh = 0;
+            refresh();
+        }
+    }
+
+    public void render(Graphics2D graphics, float left, float top) {
+        if (!visible) {
+            return;
+        }
+        for (int i = 0; i < lines.length; i++) {
+            graphics.drawTextByHeight(font, lines[i], left, top + i * LINE_HEIGHT, LINE_HEIGHT, Z, Color.WHITE);
+        }
+    }
+
+    private void refresh() {
+        int line = 0;
+        for (Profiler.Section section : Profiler.Section.values()) {
+            Histogram histogram = profiler.get(section);
+            lines[line++] = String.format("%-15s p50 %7.3f  p99 %7.3f  max %7.3f ms", section.label,
+                    histogram.getPercentile(50) / 1e6, histogram.getPercentile(99) / 1e6, histogram.getMax() / 1e6);
+        }
+        for (Profiler.Counter counter : Profiler.Counter.values()) {
+            Histogram histogram = profiler.get(counter);
+            lines[line++] = String.format("%-15s p50 %7d  p99 %7d  max %7d", counter.label,
+                    histogram.getPercentile(50), histogram.getPercentile(99), histogram.getMax());
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package profiling;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/** A JFR event for a profiled Simulation bringing its rules up to date with the board. */
+@Name("bigblue.RuleRecompute")
+@Label("Rule Recompute")
+@Category({"Big Blue", "Simulation"})
+@Description("RuleSystem re-reading the rules after text moved, or after a level load or undo")
+@StackTrace(false)
+public class RuleRecomputeEvent extends Event {
+    private static final EventType TYPE = EventType.getEventType(RuleRecomputeEvent.class);
+
+    /** Whether a recording is taking these events, so that nothing is allocated for rule updates when none is. */
+    public static boolean isRecording() {
+        return TYPE.isEnabled();
+    }
+
+    @Label("Rules Before")
+    public int rulesBefore;
+
+    @Label("Rules After")
+    public int rulesAfter;
+
+    @Label("Changed")
+    @Description("Whether any property or transformation changed")
+    public boolean changed;
+}
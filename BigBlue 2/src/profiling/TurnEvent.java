@@ -0,0 +1,41 @@
+package profiling;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/** A JFR event for one turn of a profiled Simulation, from the step to the win and loss checks. */
+@Name("bigblue.Turn")
+@Label("Turn")
+@Category({"Big Blue", "Simulation"})
+@Description("One move of everything that is You, with its pushes, rule changes and condition checks")
+@StackTrace(false)
+public class TurnEvent extends Event {
+    private static final EventType TYPE = EventType.getEventType(TurnEvent.class);
+
+    /** Whether a recording is taking these events, so that nothing is allocated for turns when none is. */
+    public static boolean isRecording() {
+        return TYPE.isEnabled();
+    }
+
+    @Label("Direction")
+    public String direction;
+
+    @Label("Entities Moved")
+    @Description("Entities that are You and moved, plus every entity pushed")
+    public int entitiesMoved;
+
+    @Label("Push Chain Length")
+    @Description("The most entities pushed in a row by one move")
+    public int pushChainLength;
+
+    @Label("Won")
+    public boolean won;
+
+    @Label("Lost")
+    public boolean lost;
+}
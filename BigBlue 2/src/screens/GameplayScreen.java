@@ -1,24 +1,27 @@
 package screens;
 
-import components.NameComponent;
 import components.PositionComponent;
-import components.RuleComponent;
 import components.SpriteComponent;
 import edu.usu.audio.Sound;
 import edu.usu.audio.SoundManager;
 import edu.usu.graphics.Color;
 import edu.usu.graphics.Graphics2D;
-import edu.usu.graphics.Rectangle;
+import edu.usu.graphics.InstanceLayer;
 import edu.usu.graphics.Texture;
-import entities.EntityBlueprint;
 import entities.EntityManager;
-import entities.GameState;
+import profiling.LevelLoadEvent;
+import profiling.Profiler;
 import serializer.ControlConfiguration;
+import simulation.Direction;
+import simulation.Simulation;
+import simulation.TurnResult;
 import systems.Animation;
-import systems.ConditionSystem;
-import systems.MovementSystem;
-import systems.RuleSystem;
+import systems.AnimationCache;
+import systems.SpriteSheet;
+import systems.TextureAtlas;
+import util.IntList;
 import util.ParseLevel;
+import systems.ParticleEffects;
 import systems.ParticleManager;
 
 import java.util.*;
@@ -28,22 +31,38 @@ import static org.lwjgl.glfw.GLFW.*;
 public class GameplayScreen extends Screen {
     private List<ParseLevel.LevelData> levels;
     private ParseLevel.LevelData currentLevel;
-    private EntityManager entityManager;
-    private Map<Character, EntityBlueprint> charMap;
+    private final Simulation simulation = new Simulation();
+    private final EntityManager entityManager = simulation.getEntityManager();
     private ControlConfiguration controlConfiguration;
     private final Map<String, Color> textureTints = new HashMap<>();
     private Set<Integer> keysPressedLastFrame = new HashSet<>();
     private final HashMap<ControlConfiguration.Action, KeyboardHandler.KeyAction> controlActions = new HashMap<>();
-    private RuleSystem ruleSystem;
-    private MovementSystem movementSystem;
-    private ConditionSystem conditionSystem;
-    private final Stack<GameState> undoStack = new Stack<>();
+    // Depth of each layer of sprites: whatever is "you" above anything pushable above the rest, and
+    // within a layer by sprite z-index, a step apart.  The depth buffer layers them, so they can be
+    // drawn in any order.  Z-indexes start at -1, for the floor, so the steps are counted from one
+    // below it to keep every sprite at or above the black background drawn at 0.  The bands stay
+    // apart for z-indexes below 49.
+    private static final float YOU_DEPTH = 0.85f;
+    private static final float PUSHABLE_DEPTH = 0.8f;
+    private static final float Z_INDEX_DEPTH = 0.001f;
+    // The board's sprites, one slot per entity slot, kept on the GPU and animated there.  The slots
+    // are re-emitted only after a turn changes the board.
+    private final InstanceLayer tileLayer = new InstanceLayer();
+    private boolean boardChanged = true;
+    // Every sprite is packed into the atlas when the screen is built, so the tile map draws from
+    // one texture.
+    private final TextureAtlas atlas = new TextureAtlas("resources/images");
+    private final AnimationCache animationCache = new AnimationCache(atlas);
+    // The sheets the current level holds in the cache, acquired once each however many entities
+    // draw them.
+    private Map<String, SpriteSheet> levelSheets = new HashMap<>();
     private float tileWidth;
     private float tileHeight;
+    // Loaded once for every level, so spawning an effect reads no files.
+    private final ParticleEffects effects = new ParticleEffects("resources/effects/particles.json");
     private ParticleManager particleManager;
-    private Set<Integer> previousYouEntities = new HashSet<>();
-    private Set<Integer> previousWinEntities = new HashSet<>();
     private MenuScreen levelMenu;
+    private final Profiler profiler;
     private final SoundManager soundManager = new SoundManager();
     private final Sound moveSound = soundManager.load("move", "resources/audio/move.ogg", false);
     private final Sound winSound = soundManager.load("win", "resources/audio/win.ogg", false);
@@ -52,24 +71,20 @@ public class GameplayScreen extends Screen {
     private double pauseTime;
     private final Sound backgroundMusic = soundManager.load("music", "resources/audio/backgroundMusic.ogg", true);
 
-    public GameplayScreen(Graphics2D graphics, MenuScreen levelMenu, ControlConfiguration controlConfiguration) {
+    public GameplayScreen(Graphics2D graphics, MenuScreen levelMenu, ControlConfiguration controlConfiguration, Profiler profiler) {
         super(graphics);
         this.levelMenu = levelMenu;
-        this.charMap = new HashMap<>();
-        this.entityManager = new EntityManager(this);
-        this.ruleSystem = new RuleSystem(entityManager);
-        this.movementSystem = new MovementSystem(entityManager);
-        this.conditionSystem = new ConditionSystem(entityManager, ruleSystem);
         this.controlConfiguration = controlConfiguration;
-        controlActions.put(ControlConfiguration.Action.RIGHT, (_) -> handleMovement(1, 0));
-        controlActions.put(ControlConfiguration.Action.LEFT, (_) -> handleMovement(-1, 0));
-        controlActions.put(ControlConfiguration.Action.UP, (_) -> handleMovement(0, -1));
-        controlActions.put(ControlConfiguration.Action.DOWN, (_) -> handleMovement(0, 1));
-        controlActions.put(ControlConfiguration.Action.UNDO, (_) -> undo());
-        controlActions.put(ControlConfiguration.Action.RESTART, (_) -> resetLevel());
+        this.profiler = profiler;
+        simulation.setProfiler(profiler);
+        controlActions.put(ControlConfiguration.Action.RIGHT, (_) -> handleMovement(Direction.RIGHT));
+        controlActions.put(ControlConfiguration.Action.LEFT, (_) -> handleMovement(Direction.LEFT));
+        controlActions.put(ControlConfiguration.Action.UP, (_) -> handleMovement(Direction.UP));
+        controlActions.put(ControlConfiguration.Action.DOWN, (_) -> handleMovement(Direction.DOWN));
+        controlActions.put(ControlConfiguration.Action.UNDO, (_) -> present(simulation.undo()));
+        controlActions.put(ControlConfiguration.Action.RESTART, (_) -> present(simulation.restart()));
         backgroundMusic.setGain(0.1f);
         loadLevels();
-        initializeCharMap();
         initializeTextureTints();
     }
 
@@ -92,18 +107,31 @@ public class GameplayScreen extends Screen {
     }
 
     private void setLevel(ParseLevel.LevelData level) {
+        LevelLoadEvent event = new LevelLoadEvent();
+        event.begin();
         this.currentLevel = level;
         pauseTime = 0;
         levelOver = false;
         this.tileWidth = width / currentLevel.width;
         this.tileHeight = height / currentLevel.height;
-        entityManager.clear();
-        undoStack.clear();
-        loadLevelEntities();
-        ruleSystem.update();
-        applyTransformations();
-        particleManager = new ParticleManager(left, top, tileWidth, tileHeight, 0.02f);
-        movementSystem.setParticleManager(particleManager);
+        particleManager = new ParticleManager(effects, left, top, tileWidth, tileHeight, 0.02f);
+        // The old level's sheets are released only once the new level holds its own, so sprites
+        // the two share are not reloaded.
+        Map<String, SpriteSheet> previousSheets = levelSheets;
+        levelSheets = new HashMap<>();
+        present(simulation.load(level));
+        if (event.shouldCommit()) {
+            event.level = level.name;
+            event.entities = entityManager.getEntityCount();
+            event.spriteSheets = levelSheets.size();
+            for (String sheet : levelSheets.keySet()) {
+                if (!previousSheets.containsKey(sheet)) {
+                    event.texturesLoaded++;
+                }
+            }
+            event.commit();
+        }
+        releaseSheets(previousSheets);
     }
 
     public void setLevel(int levelIndex) {
@@ -116,123 +144,62 @@ public class GameplayScreen extends Screen {
         return levels.size();
     }
 
-    private void resetLevel() {
-        entityManager.restoreState(undoStack.getFirst());
-        undoStack.clear();
-        undoStack.push(entityManager.saveState());
-    }
-
-    private void loadLevelEntities() {
-        for (int y = 0; y < currentLevel.height; y++) {
-            for (int x = 0; x < currentLevel.width; x++) {
-                char gameplayChar = currentLevel.gameplayLayer[y][x];
-                if (gameplayChar != ' ') {
-                    createEntityFromChar(gameplayChar, x, y, false);
-                }
-                char ruleChar = currentLevel.ruleLayer[y][x];
-                if (ruleChar != ' ') {
-                    createEntityFromChar(ruleChar, x, y, true);
-                }
-            }
+    /** Gives every entity the result touched a sprite matching its current name. */
+    private void present(TurnResult result) {
+        boardChanged = true;
+        IntList created = result.getCreatedIds();
+        for (int i = 0; i < created.size(); i++) {
+            attachSprite(created.get(i));
+        }
+        IntList renamed = result.getRenamedIds();
+        for (int i = 0; i < renamed.size(); i++) {
+            attachSprite(renamed.get(i));
+        }
+        IntList destroyed = result.getDestroyedIds();
+        for (int i = 0; i < destroyed.size(); i++) {
+            particleManager.createDestructionEffect(result.getDestroyedX().get(i), result.getDestroyedY().get(i));
         }
     }
 
-    private void createEntityFromChar(char c, int x, int y, boolean isRuleLayer) {
-        EntityBlueprint blueprint = charMap.get(c);
-        if (blueprint != null) {
-            int entityId = entityManager.createEntity();
-            entityManager.addComponent(entityId, new PositionComponent(x, y));
-            String fullPath = "resources/images/" + blueprint.spritePath;
-
-            try {
-                SpriteComponent sprite;
-                if (c == 'b' || c == 'B') {
-                    Texture texture = new Texture(fullPath);
-                    sprite = new SpriteComponent(texture, blueprint.spritePath);
-                    sprite.setZIndex(10);
+    private void attachSprite(int entityId) {
+        String name = entityManager.getEntityName(entityId);
+        if (name == null) return;
+        String spritePath = (entityManager.isText(entityId) ? "word-" : "") + name.toLowerCase() + ".png";
+        String fullPath = "resources/images/" + spritePath;
+        try {
+            SpriteComponent sprite;
+            if (name.equals("BigBlue")) {
+                SpriteSheet sheet = levelSheet(fullPath, 1);
+                sprite = new SpriteComponent(sheet.getTexture(), sheet.getFrame(0), spritePath);
+                sprite.setZIndex(10);
+            } else {
+                SpriteSheet sheet = levelSheet(fullPath, 3);
+                Animation animation = new Animation(sheet, 200);
+                sprite = new SpriteComponent(animation, spritePath);
+                if (name.equals("Floor")) {
+                    sprite.setZIndex(-1);
                 } else {
-                    Animation animation = new Animation(fullPath, 3, 200);
-                    sprite = new SpriteComponent(animation, blueprint.spritePath);
-                    if (blueprint.word.equals("Floor")) {
-                        sprite.setZIndex(-1);
-                    } else {
-                        sprite.setZIndex(0);
-                    }
+                    sprite.setZIndex(0);
                 }
-                entityManager.addComponent(entityId, sprite);
-            } catch (Exception e) {
-                System.err.println("Failed to load texture: " + blueprint.spritePath);
-            }
-
-            if (blueprint.word != null) {
-                entityManager.addComponent(entityId, new NameComponent(blueprint.word));
-            }
-
-            if (blueprint.isText) {
-                RuleComponent.Type type;
-                switch (blueprint.word) {
-                    case "Is": type = RuleComponent.Type.OPERATOR; break;
-                    case "Push":
-                    case "Stop":
-                    case "Win":
-                    case "You":
-                    case "Sink":
-                    case "Kill":
-                        type = RuleComponent.Type.PROPERTY; break;
-                    default:
-                        type = RuleComponent.Type.SUBJECT; break;
-                }
-                entityManager.addComponent(entityId, new RuleComponent(blueprint.word, type));
-                ruleSystem.activeRules.computeIfAbsent(blueprint.word, k -> new HashSet<>()).add("Push");
             }
+            entityManager.addComponent(entityId, sprite);
+        } catch (Exception e) {
+            System.err.println("Failed to load texture: " + spritePath);
         }
     }
 
-    private void applyTransformations() {
-        for (int entityId : entityManager.getAllEntityIds()) {
-            if (entityManager.isEntityActive(entityId)) {
-                RuleComponent ruleComp = entityManager.getComponent(entityId, RuleComponent.class);
-                if (ruleComp == null) {
-                    NameComponent nameComp = entityManager.getComponent(entityId, NameComponent.class);
-                    if (nameComp != null) {
-                        String currentName = nameComp.name;
-                        String targetName = ruleSystem.getFinalTransformation(currentName);
-                        if (!targetName.equals(currentName)) {
-                            transformEntity(entityId, targetName);
-                        }
-                    }
-                }
-            }
+    private SpriteSheet levelSheet(String path, int totalFrames) {
+        SpriteSheet sheet = levelSheets.get(path);
+        if (sheet == null) {
+            sheet = animationCache.acquire(path, totalFrames);
+            levelSheets.put(path, sheet);
         }
+        return sheet;
     }
 
-    private void transformEntity(int entityId, String targetName) {
-        NameComponent nameComp = entityManager.getComponent(entityId, NameComponent.class);
-        if (nameComp != null) {
-            nameComp.name = targetName;
-        }
-
-        SpriteComponent spriteComp = entityManager.getComponent(entityId, SpriteComponent.class);
-        if (spriteComp != null) {
-            String spritePath = targetName.toLowerCase() + ".png";
-            String fullPath = "resources/images/" + spritePath;
-            try {
-                if (targetName.equals("BigBlue")) {
-                    Texture texture = new Texture(fullPath);
-                    spriteComp.setTexture(texture, spritePath);
-                    spriteComp.setZIndex(10);
-                } else if (targetName.equals("Floor")) {
-                    Animation animation = new Animation(fullPath, 3, 200);
-                    spriteComp.setAnimation(animation, spritePath);
-                    spriteComp.setZIndex(-1);
-                } else {
-                    Animation animation = new Animation(fullPath, 3, 200);
-                    spriteComp.setAnimation(animation, spritePath);
-                    spriteComp.setZIndex(0);
-                }
-            } catch (Exception e) {
-
-            }
+    private void releaseSheets(Map<String, SpriteSheet> sheets) {
+        for (String path : sheets.keySet()) {
+            animationCache.release(path);
         }
     }
 
@@ -259,141 +226,43 @@ public class GameplayScreen extends Screen {
         textureTints.put("word-kill.png", new Color(0.9f, 0.2f, 0.2f));
     }
 
-    private void initializeCharMap() {
-        charMap.put('h', new EntityBlueprint("hedge.png", false, "Hedge"));
-        charMap.put('w', new EntityBlueprint("wall.png", false, "Wall"));
-        charMap.put('r', new EntityBlueprint("rock.png", false, "Rock"));
-        charMap.put('b', new EntityBlueprint("bigblue.png", false, "BigBlue"));
-        charMap.put('f', new EntityBlueprint("flag.png", false, "Flag"));
-        charMap.put('l', new EntityBlueprint("floor.png", false, "Floor"));
-        charMap.put('g', new EntityBlueprint("grass.png", false, "Grass"));
-        charMap.put('a', new EntityBlueprint("water.png", false, "Water"));
-        charMap.put('v', new EntityBlueprint("lava.png", false, "Lava"));
+    private void handleMovement(Direction direction) {
+        TurnResult result = simulation.step(direction);
+        if (!result.isMoved()) return;
+        present(result);
 
-        charMap.put('W', new EntityBlueprint("word-wall.png", true, "Wall"));
-        charMap.put('R', new EntityBlueprint("word-rock.png", true, "Rock"));
-        charMap.put('F', new EntityBlueprint("word-flag.png", true, "Flag"));
-        charMap.put('B', new EntityBlueprint("word-bigblue.png", true, "BigBlue"));
-        charMap.put('I', new EntityBlueprint("word-is.png", true, "Is"));
-        charMap.put('S', new EntityBlueprint("word-stop.png", true, "Stop"));
-        charMap.put('P', new EntityBlueprint("word-push.png", true, "Push"));
-        charMap.put('V', new EntityBlueprint("word-lava.png", true, "Lava"));
-        charMap.put('A', new EntityBlueprint("word-water.png", true, "Water"));
-        charMap.put('Y', new EntityBlueprint("word-you.png", true, "You"));
-        charMap.put('X', new EntityBlueprint("word-win.png", true, "Win"));
-        charMap.put('N', new EntityBlueprint("word-sink.png", true, "Sink"));
-        charMap.put('K', new EntityBlueprint("word-kill.png", true, "Kill"));
-    }
-
-    private void handleMovement(int dx, int dy) {
-        Set<Integer> youEntities = conditionSystem.getYouEntities();
-        if (youEntities.isEmpty()) return;
-        GameState currentState = entityManager.saveState();
-        undoStack.push(currentState);
-
-        boolean anyMoved = false;
-        List<Integer> youEntitiesList = new ArrayList<>(youEntities);
-        Collections.sort(youEntitiesList);
-
-        for (int id : youEntitiesList) {
-            if (entityManager.isEntityActive(id)) {
-                if (tryMoveEntity(id, dx, dy)) {
-                    anyMoved = true;
-                }
-            }
+        if (moveSound.isPlaying()) {
+            moveSound.stop();
         }
+        moveSound.play();
 
-        if (anyMoved) {
-            previousYouEntities.clear();
-            previousYouEntities.addAll(conditionSystem.getYouEntities());
-            previousWinEntities.clear();
-            previousWinEntities.addAll(conditionSystem.getWinEntities());
-
-            ruleSystem.update();
-            applyTransformations();
-
-            Set<Integer> newYouEntities = conditionSystem.getYouEntities();
-            Set<Integer> newWinEntities = conditionSystem.getWinEntities();
-
-            Set<Integer> addedYouEntities = new HashSet<>(newYouEntities);
-            addedYouEntities.removeAll(previousYouEntities);
-            Set<Integer> addedWinEntities = new HashSet<>(newWinEntities);
-            addedWinEntities.removeAll(previousWinEntities);
-
-            for (int id : addedYouEntities) {
-                PositionComponent pos = entityManager.getComponent(id, PositionComponent.class);
-                if (pos != null) {
-                    particleManager.createSparkleEffect(pos.x, pos.y);
-                }
-            }
-            for (int id : addedWinEntities) {
-                PositionComponent pos = entityManager.getComponent(id, PositionComponent.class);
-                if (pos != null) {
-                    particleManager.createSparkleEffect(pos.x, pos.y);
-                    if (isWinSound.isPlaying()) {
-                        isWinSound.stop();
-                    }
-                    isWinSound.play();
-                }
+        IntList newYou = result.getNewYouIds();
+        for (int i = 0; i < newYou.size(); i++) {
+            PositionComponent pos = entityManager.getComponent(newYou.get(i), PositionComponent.class);
+            if (pos != null) {
+                particleManager.createSparkleEffect(pos.x, pos.y);
             }
-
-            int condition = conditionSystem.checkConditions();
-            if (condition == 1) {
-                particleManager.createFireworks(width, height);
-                if (winSound.isPlaying()) {
-                    winSound.stop();
-                }
-                levelOver = true;
-                pauseTime = 2.25;
-                winSound.play();
-            }
-        } else {
-            undoStack.pop();
         }
-    }
-
-    public void onEntityRemoved(float gridX, float gridY) {
-        particleManager.createDestructionEffect(gridX, gridY);
-    }
-
-    private boolean tryMoveEntity(int entityId, int dx, int dy) {
-        PositionComponent pos = entityManager.getComponent(entityId, PositionComponent.class);
-        if (pos == null) return false;
-
-        int targetX = pos.x + dx;
-        int targetY = pos.y + dy;
-
-        Set<String> pushableNames = getNamesWithProperty("Push");
-        Set<String> youNames = getNamesWithProperty("You");
-
-        if (movementSystem.tryMove(pos.x, pos.y, dx, dy, pushableNames, youNames)) {
-            pos.x = targetX;
-            pos.y = targetY;
-            movementSystem.checkAndApplySink(entityId,targetX, targetY);
-            if (moveSound.isPlaying()) {
-                moveSound.stop();
+        IntList newWin = result.getNewWinIds();
+        for (int i = 0; i < newWin.size(); i++) {
+            PositionComponent pos = entityManager.getComponent(newWin.get(i), PositionComponent.class);
+            if (pos != null) {
+                particleManager.createSparkleEffect(pos.x, pos.y);
+                if (isWinSound.isPlaying()) {
+                    isWinSound.stop();
+                }
+                isWinSound.play();
             }
-            moveSound.play();
-            return true;
         }
-        return false;
-    }
 
-    private Set<String> getNamesWithProperty(String property) {
-        Set<String> result = new HashSet<>();
-        for (Map.Entry<String, Set<String>> entry : ruleSystem.activeRules.entrySet()) {
-            if (entry.getValue().contains(property)) {
-                result.add(entry.getKey());
+        if (result.isWon()) {
+            particleManager.createFireworks(width, height);
+            if (winSound.isPlaying()) {
+                winSound.stop();
             }
-        }
-        return result;
-    }
-
-    private void undo() {
-        if (!undoStack.isEmpty()) {
-            GameState previousState = undoStack.pop();
-            entityManager.restoreState(previousState);
-            ruleSystem.update();
+            levelOver = true;
+            pauseTime = 2.25;
+            winSound.play();
         }
     }
 
@@ -419,14 +288,7 @@ public class GameplayScreen extends Screen {
 
     @Override
     public void screenUpdate(double elapsedTime) {
-        if (!levelOver) {
-            for (int entityId : entityManager.getAllEntityIds()) {
-                SpriteComponent sprite = entityManager.getComponent(entityId, SpriteComponent.class);
-                if (sprite != null) {
-                    sprite.update();
-                }
-            }
-        } else {
+        if (levelOver) {
             pauseTime -= elapsedTime;
             if (pauseTime <= 0) {
                 backgroundMusic.stop();
@@ -434,50 +296,61 @@ public class GameplayScreen extends Screen {
                 particleManager.clear();
             }
         }
+        long start = profiler.start();
         particleManager.update(elapsedTime);
+        profiler.end(Profiler.Section.PARTICLES, start);
     }
 
     @Override
     public void render() {
-        float tileWidth = width / currentLevel.width;
-        float tileHeight = height / currentLevel.height;
-
-        List<Integer> entities = new ArrayList<>(entityManager.getAllEntityIds());
-        entities.sort((id1, id2) -> {
-            SpriteComponent s1 = entityManager.getComponent(id1, SpriteComponent.class);
-            SpriteComponent s2 = entityManager.getComponent(id2, SpriteComponent.class);
-            int z1 = s1 != null ? s1.getZIndex() : 0;
-            int z2 = s2 != null ? s2.getZIndex() : 0;
-            return Integer.compare(z1, z2);
-        });
-        Set<Integer> youEntities = conditionSystem.getYouEntities();
-        Set<String> pushableNames = getNamesWithProperty("Push");
-        for (int entityId : entities) {
-            if (entityManager.isEntityActive(entityId)) {
-                PositionComponent pos = entityManager.getComponent(entityId, PositionComponent.class);
-                SpriteComponent sprite = entityManager.getComponent(entityId, SpriteComponent.class);
-                if (pos != null && sprite != null) {
-                    float ndcX = left + pos.x * tileWidth;
-                    float ndcY = top + pos.y * tileHeight;
-                    float zIndex = 0;
-                    if (youEntities.contains(entityId)) {
-                        zIndex = 0.85f;
-                    } else if (movementSystem.isPushable(entityId, pushableNames)) {
-                        zIndex = 0.8f;
-                    }
-                    Rectangle destinationRect = new Rectangle(ndcX, ndcY, tileWidth, tileHeight, zIndex);
-                    Color tint = textureTints.getOrDefault(sprite.getTexturePath(), Color.WHITE);
-                    Texture texture = sprite.getTexture();
-                    if (texture != null) {
-                        graphics.draw(texture, destinationRect, tint);
-                    }
-                }
+        if (boardChanged) {
+            int entityCount = entityManager.getEntityCount();
+            tileLayer.resize(entityCount);
+            for (int slot = 0; slot < entityCount; slot++) {
+                emitTile(slot);
             }
+            boardChanged = false;
+        }
+        graphics.draw(tileLayer);
+        particleManager.render(graphics, (float) timeSinceUpdate);
+        profiler.count(Profiler.Counter.ENTITIES, entityManager.getEntityCount());
+        profiler.count(Profiler.Counter.PARTICLES, particleManager.size());
+    }
+
+    /** Puts the entity in the slot into its slot of the tile layer, as it should look now. */
+    private void emitTile(int slot) {
+        int entityId = entityManager.getEntityIdAt(slot);
+        SpriteComponent sprite = entityManager.getSpriteAt(slot);
+        Texture texture = sprite != null ? sprite.getTexture() : null;
+        if (!entityManager.hasPositionAt(slot) || texture == null) {
+            tileLayer.clear(slot);
+            return;
+        }
+        float ndcX = left + entityManager.getXAt(slot) * tileWidth;
+        float ndcY = top + entityManager.getYAt(slot) * tileHeight;
+        float zIndex = (sprite.getZIndex() + 1) * Z_INDEX_DEPTH;
+        if (simulation.isYou(entityId)) {
+            zIndex += YOU_DEPTH;
+        } else if (simulation.isPushable(entityId)) {
+            zIndex += PUSHABLE_DEPTH;
+        }
+        Color tint = textureTints.getOrDefault(sprite.getTexturePath(), Color.WHITE);
+        Animation animation = sprite.getAnimation();
+        if (animation != null) {
+            tileLayer.set(slot, texture, ndcX, ndcY, tileWidth, tileHeight, zIndex, sprite.getSubImage(),
+                    animation.getFrameCount(), animation.getFrameStep(), animation.getFrameDelay() / 1000.0f, tint);
+        } else {
+            tileLayer.set(slot, texture, ndcX, ndcY, tileWidth, tileHeight, zIndex, sprite.getSubImage(), tint);
         }
-        particleManager.render(graphics);
     }
 
     public void dispose() {
+        releaseSheets(levelSheets);
+        levelSheets.clear();
+        animationCache.cleanup();
+        atlas.cleanup();
+        tileLayer.cleanup();
+        effects.cleanup();
         soundManager.cleanup();
     }
 }
\ No newline at end of file
@@ -17,6 +17,8 @@ public abstract class Screen {
     protected static float top;
     public static Rectangle screenRectangle;
     protected Boolean pauseInput = false;
+    // Seconds since the last update, less than one update step, for drawing things that move ahead.
+    protected double timeSinceUpdate;
 
     public Screen(Graphics2D graphics) {
         this.keyboardHandler = new KeyboardHandler(graphics.getWindow());
@@ -87,5 +89,9 @@ public abstract class Screen {
 
     public abstract void screenUpdate(double elapsedTime);
 
+    public void setTimeSinceUpdate(double timeSinceUpdate) {
+        this.timeSinceUpdate = timeSinceUpdate;
+    }
+
     public abstract void render();
 }
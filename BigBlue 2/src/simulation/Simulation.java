@@ -0,0 +1,317 @@
+package simulation;
+
+import components.NameComponent;
+import components.PositionComponent;
+import components.RuleComponent;
+import entities.EntityBlueprint;
+import entities.EntityManager;
+import entities.UndoJournal;
+import profiling.Profiler;
+import profiling.RuleRecomputeEvent;
+import profiling.TurnEvent;
+import systems.ConditionSystem;
+import systems.MovementSystem;
+import systems.Property;
+import systems.RuleSystem;
+import util.IntList;
+import util.ParseLevel;
+
+import java.util.*;
+
+/**
+ * The game rules without any windowing, audio or graphics: a level's entities plus the rule,
+ * movement and condition systems that act on them.  GameplayScreen drives one of these and turns
+ * the TurnResult of each call into sounds, particles and sprites; tools and benchmarks can run
+ * one directly.
+ */
+public class Simulation {
+    public static final long DEFAULT_UNDO_BUDGET_BYTES = 8L * 1024 * 1024;
+
+    private final EntityManager entityManager = new EntityManager();
+    private final UndoJournal undoJournal;
+    private final RuleSystem ruleSystem;
+    private final MovementSystem movementSystem;
+    private final ConditionSystem conditionSystem;
+    private final Map<Character, EntityBlueprint> charMap = new HashMap<>();
+    private final TurnResult result = new TurnResult();
+    private final IntList youOrder = new IntList();
+    // Who is You and Win before and after a turn's rule update, reused so a turn allocates nothing.
+    private final IntList previousYou = new IntList();
+    private final IntList previousWin = new IntList();
+    private final IntList currentYou = new IntList();
+    private final IntList currentWin = new IntList();
+    private ParseLevel.LevelData level;
+    private Profiler profiler = Profiler.NONE;
+
+    public Simulation() {
+        this(DEFAULT_UNDO_BUDGET_BYTES);
+    }
+
+    public Simulation(long undoBudgetBytes) {
+        this.undoJournal = new UndoJournal(undoBudgetBytes);
+        entityManager.setUndoJournal(undoJournal);
+        entityManager.setDestroyListener(result::addDestroyed);
+        this.ruleSystem = new RuleSystem(entityManager);
+        this.movementSystem = new MovementSystem(entityManager, ruleSystem);
+        this.conditionSystem = new ConditionSystem(entityManager, ruleSystem);
+        initializeCharMap();
+    }
+
+    /** Replaces the board with a fresh copy of the level.  Every entity is reported as created. */
+    public TurnResult load(ParseLevel.LevelData level) {
+        this.level = level;
+        result.reset();
+        entityManager.clear();
+        entityManager.setGridSize(level.width, level.height);
+        for (int y = 0; y < level.height; y++) {
+            for (int x = 0; x < level.width; x++) {
+                char gameplayChar = level.gameplayLayer[y][x];
+                if (gameplayChar != ' ') {
+                    createEntityFromChar(gameplayChar, x, y);
+                }
+                char ruleChar = level.ruleLayer[y][x];
+                if (ruleChar != ' ') {
+                    createEntityFromChar(ruleChar, x, y);
+                }
+            }
+        }
+        updateRules();
+        applyTransformations();
+        for (int slot = 0; slot < entityManager.getEntityCount(); slot++) {
+            result.getCreatedIds().add(entityManager.getEntityIdAt(slot));
+        }
+        result.setMoved(true);
+        return result;
+    }
+
+    /** Moves everything that is You one tile, resolving pushes, sinks, new rules, kills and wins. */
+    public TurnResult step(Direction direction) {
+        result.reset();
+        youOrder.clear();
+        for (int slot = 0; slot < entityManager.getEntityCount(); slot++) {
+            if (!entityManager.isTextAt(slot) && ruleSystem.hasProperty(entityManager.getNameIdAt(slot), Property.YOU)) {
+                youOrder.add(entityManager.getEntityIdAt(slot));
+            }
+        }
+        if (youOrder.isEmpty()) {
+            result.setLost(true);
+            return result;
+        }
+        youOrder.sort();
+        TurnEvent event = profiler.isEnabled() && TurnEvent.isRecording() ? new TurnEvent() : null;
+        if (event != null) {
+            event.begin();
+        }
+        undoJournal.beginTurn();
+        movementSystem.resetCounts();
+
+        int youMoved = 0;
+        for (int i = 0; i < youOrder.size(); i++) {
+            int id = youOrder.get(i);
+            if (entityManager.isEntityActive(id) && tryMoveEntity(id, direction.dx, direction.dy)) {
+                youMoved++;
+            }
+        }
+        boolean anyMoved = youMoved > 0;
+
+        if (anyMoved) {
+            conditionSystem.getYouEntities(previousYou);
+            conditionSystem.getWinEntities(previousWin);
+
+            if (updateRules()) {
+                applyTransformations();
+            }
+
+            conditionSystem.getYouEntities(currentYou);
+            addMissing(currentYou, previousYou, result.getNewYouIds());
+            conditionSystem.getWinEntities(currentWin);
+            addMissing(currentWin, previousWin, result.getNewWinIds());
+
+            long start = profiler.start();
+            int condition = conditionSystem.checkConditions();
+            profiler.end(Profiler.Section.CONDITIONS, start);
+            result.setWon(condition == 1);
+            result.setLost(condition == -1);
+        }
+        undoJournal.endTurn();
+        result.setMoved(anyMoved);
+        if (event != null && event.shouldCommit()) {
+            event.direction = direction.name();
+            event.entitiesMoved = youMoved + movementSystem.getPushedCount();
+            event.pushChainLength = movementSystem.getLongestPush();
+            event.won = result.isWon();
+            event.lost = result.isLost();
+            event.commit();
+        }
+        return result;
+    }
+
+    /** Takes back the last turn, if there is one. */
+    public TurnResult undo() {
+        result.reset();
+        if (entityManager.undoTurn(result.getRenamedIds())) {
+            updateRules();
+            result.setMoved(true);
+        }
+        return result;
+    }
+
+    /**
+     * Puts the level back to its starting position by undoing every turn, or by loading it again
+     * if the earliest turns were dropped to stay within the undo budget.
+     */
+    public TurnResult restart() {
+        if (!undoJournal.isComplete()) {
+            return load(level);
+        }
+        result.reset();
+        while (entityManager.undoTurn(result.getRenamedIds())) {
+            result.setMoved(true);
+        }
+        updateRules();
+        return result;
+    }
+
+    public boolean isYou(int entityId) {
+        return !entityManager.isText(entityId)
+                && ruleSystem.hasProperty(entityManager.getNameId(entityId), Property.YOU);
+    }
+
+    public boolean isPushable(int entityId) {
+        return movementSystem.isPushable(entityId);
+    }
+
+    /** Where the rule, movement and condition systems' times go; Profiler.NONE to begin with. */
+    public void setProfiler(Profiler profiler) {
+        this.profiler = profiler;
+    }
+
+    public ParseLevel.LevelData getLevel() {
+        return level;
+    }
+
+    public EntityManager getEntityManager() {
+        return entityManager;
+    }
+
+    public RuleSystem getRuleSystem() {
+        return ruleSystem;
+    }
+
+    public ConditionSystem getConditionSystem() {
+        return conditionSystem;
+    }
+
+    public UndoJournal getUndoJournal() {
+        return undoJournal;
+    }
+
+    private boolean tryMoveEntity(int entityId, int dx, int dy) {
+        int slot = entityManager.getSlot(entityId);
+        if (!entityManager.hasPositionAt(slot)) return false;
+
+        int startX = entityManager.getXAt(slot);
+        int startY = entityManager.getYAt(slot);
+        long start = profiler.start();
+        boolean moved = movementSystem.tryMove(startX, startY, dx, dy);
+        profiler.end(Profiler.Section.MOVEMENT, start);
+        if (moved) {
+            entityManager.setPosition(entityId, startX + dx, startY + dy);
+            movementSystem.checkAndApplySink(entityId, startX + dx, startY + dy);
+            return true;
+        }
+        return false;
+    }
+
+    // Adds to out, in increasing order, every id in current that is not in previous.  Sorts both.
+    private static void addMissing(IntList current, IntList previous, IntList out) {
+        current.sort();
+        previous.sort();
+        int j = 0;
+        for (int i = 0; i < current.size(); i++) {
+            int id = current.get(i);
+            while (j < previous.size() && previous.get(j) < id) {
+                j++;
+            }
+            if (j == previous.size() || previous.get(j) != id) {
+                out.add(id);
+            }
+        }
+    }
+
+    private boolean updateRules() {
+        RuleRecomputeEvent event = profiler.isEnabled() && RuleRecomputeEvent.isRecording() ? new RuleRecomputeEvent() : null;
+        if (event != null) {
+            event.rulesBefore = ruleSystem.getRuleCount();
+            event.begin();
+        }
+        long start = profiler.start();
+        boolean changed = ruleSystem.update();
+        profiler.end(Profiler.Section.RULES, start);
+        if (event != null && event.shouldCommit()) {
+            event.rulesAfter = ruleSystem.getRuleCount();
+            event.changed = changed;
+            event.commit();
+        }
+        return changed;
+    }
+
+    private void applyTransformations() {
+        for (int slot = 0; slot < entityManager.getEntityCount(); slot++) {
+            int nameId = entityManager.getNameIdAt(slot);
+            if (entityManager.isTextAt(slot) || nameId == -1) continue;
+            int targetId = ruleSystem.getFinalTransformation(nameId);
+            if (targetId != nameId) {
+                int entityId = entityManager.getEntityIdAt(slot);
+                entityManager.setName(entityId, entityManager.getNameString(targetId));
+                result.getRenamedIds().add(entityId);
+            }
+        }
+    }
+
+    private void createEntityFromChar(char c, int x, int y) {
+        EntityBlueprint blueprint = charMap.get(c);
+        if (blueprint == null) return;
+
+        int entityId = entityManager.createEntity();
+        entityManager.addComponent(entityId, new PositionComponent(x, y));
+        entityManager.addComponent(entityId, new NameComponent(blueprint.word));
+        if (blueprint.isText) {
+            RuleComponent.Type type;
+            if (blueprint.word.equals("Is")) {
+                type = RuleComponent.Type.OPERATOR;
+            } else if (Property.fromWord(blueprint.word) != null) {
+                type = RuleComponent.Type.PROPERTY;
+            } else {
+                type = RuleComponent.Type.SUBJECT;
+            }
+            entityManager.addComponent(entityId, new RuleComponent(blueprint.word, type));
+        }
+    }
+
+    private void initializeCharMap() {
+        charMap.put('h', new EntityBlueprint("hedge.png", false, "Hedge"));
+        charMap.put('w', new EntityBlueprint("wall.png", false, "Wall"));
+        charMap.put('r', new EntityBlueprint("rock.png", false, "Rock"));
+        charMap.put('b', new EntityBlueprint("bigblue.png", false, "BigBlue"));
+        charMap.put('f', new EntityBlueprint("flag.png", false, "Flag"));
+        charMap.put('l', new EntityBlueprint("floor.png", false, "Floor"));
+        charMap.put('g', new EntityBlueprint("grass.png", false, "Grass"));
+        charMap.put('a', new EntityBlueprint("water.png", false, "Water"));
+        charMap.put('v', new EntityBlueprint("lava.png", false, "Lava"));
+
+        charMap.put('W', new EntityBlueprint("word-wall.png", true, "Wall"));
+        charMap.put('R', new EntityBlueprint("word-rock.png", true, "Rock"));
+        charMap.put('F', new EntityBlueprint("word-flag.png", true, "Flag"));
+        charMap.put('B', new EntityBlueprint("word-bigblue.png", true, "BigBlue"));
+        charMap.put('I', new EntityBlueprint("word-is.png", true, "Is"));
+        charMap.put('S', new EntityBlueprint("word-stop.png", true, "Stop"));
+        charMap.put('P', new EntityBlueprint("word-push.png", true, "Push"));
+        charMap.put('V', new EntityBlueprint("word-lava.png", true, "Lava"));
+        charMap.put('A', new EntityBlueprint("word-water.png", true, "Water"));
+        charMap.put('Y', new EntityBlueprint("word-you.png", true, "You"));
+        charMap.put('X', new EntityBlueprint("word-win.png", true, "Win"));
+        charMap.put('N', new EntityBlueprint("word-sink.png", true, "Sink"));
+        charMap.put('K', new EntityBlueprint("word-kill.png", true, "Kill"));
+    }
+}
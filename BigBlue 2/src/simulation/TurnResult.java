@@ -0,0 +1,100 @@
+package simulation;
+
+import util.IntList;
+
+/**
+ * What a call to Simulation.step, undo or restart did to the board, for the presenter to turn into
+ * sounds, particles and sprites.  The Simulation reuses one instance, so the contents are only
+ * valid until its next call.
+ */
+public class TurnResult {
+    private boolean moved;
+    private boolean won;
+    private boolean lost;
+    private final IntList destroyedIds = new IntList();
+    private final IntList destroyedX = new IntList();
+    private final IntList destroyedY = new IntList();
+    private final IntList createdIds = new IntList();
+    private final IntList renamedIds = new IntList();
+    private final IntList newYouIds = new IntList();
+    private final IntList newWinIds = new IntList();
+
+    /** True if anything on the board changed. */
+    public boolean isMoved() {
+        return moved;
+    }
+
+    /** True if a You entity ended the turn on a Win entity. */
+    public boolean isWon() {
+        return won;
+    }
+
+    /** True if nothing is You any more. */
+    public boolean isLost() {
+        return lost;
+    }
+
+    /** Entities destroyed by the turn; getDestroyedX/Y hold the tile each one was on. */
+    public IntList getDestroyedIds() {
+        return destroyedIds;
+    }
+
+    public IntList getDestroyedX() {
+        return destroyedX;
+    }
+
+    public IntList getDestroyedY() {
+        return destroyedY;
+    }
+
+    /** Entities that are new since the last call and have no sprite yet, e.g. after a level reload. */
+    public IntList getCreatedIds() {
+        return createdIds;
+    }
+
+    /** Entities whose name changed, whether by a transformation rule or by undo. */
+    public IntList getRenamedIds() {
+        return renamedIds;
+    }
+
+    /** Entities that became You this turn. */
+    public IntList getNewYouIds() {
+        return newYouIds;
+    }
+
+    /** Entities that became Win this turn. */
+    public IntList getNewWinIds() {
+        return newWinIds;
+    }
+
+    void setMoved(boolean moved) {
+        this.moved = moved;
+    }
+
+    void setWon(boolean won) {
+        this.won = won;
+    }
+
+    void setLost(boolean lost) {
+        this.lost = lost;
+    }
+
+    void addDestroyed(int entityId, int x, int y) {
+        destroyedIds.add(entityId);
+        destroyedX.add(x);
+        destroyedY.add(y);
+    }
+
+    void reset() {
+        moved = false;
+        won = false;
+        lost = false;
+        destroyedIds.clear();
+        destroyedX.clear();
+        destroyedY.clear();
+        createdIds.clear();
+        renamedIds.clear();
+        newYouIds.clear();
+        newWinIds.clear();
+    }
+}
@@ -0,0 +1,56 @@
+package solver;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A lock-free set of 64-bit state fingerprints for the parallel solver.  It is a fixed-size open
+ * addressing table of longs claimed with compare-and-set, so any number of threads can add at once
+ * without blocking each other.  Zero marks an empty bucket, so a fingerprint of zero is stored as
+ * one instead.
+ */
+class FingerprintSet {
+    private final AtomicLongArray buckets;
+    private final int mask;
+    private final int capacity;
+    private final AtomicInteger size = new AtomicInteger();
+
+    /** Room for at least {@code capacity} fingerprints with the table kept at most half full. */
+    FingerprintSet(int capacity) {
+        int buckets = Integer.highestOneBit(Math.max(2, capacity) * 2 - 1) << 1;
+        this.buckets = new AtomicLongArray(buckets);
+        this.mask = buckets - 1;
+        this.capacity = capacity;
+    }
+
+    /** Adds the fingerprint, returning false if it was already present or the set is full. */
+    boolean add(long fingerprint) {
+        long value = fingerprint == 0 ? 1 : fingerprint;
+        int i = (int) (value ^ (value >>> 32)) & mask;
+        while (true) {
+            long current = buckets.get(i);
+            if (current == value) {
+                return false;
+            }
+            if (current == 0) {
+                if (size.get() >= capacity) {
+                    return false;
+                }
+                if (buckets.compareAndSet(i, 0, value)) {
+                    size.incrementAndGet();
+                    return true;
+                }
+                continue;
+            }
+            i = (i + 1) & mask;
+        }
+    }
+
+    int size() {
+        return size.get();
+    }
+
+    boolean isFull() {
+        return size.get() >= capacity;
+    }
+}
@@ -0,0 +1,64 @@
+package solver;
+
+import util.ParseLevel;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Solves every level in a level file and exits with status 1 if any of them is shown to be
+ * unwinnable, so it can run as a build step.  Each level gets a breadth-first search for its
+ * shortest solution, and an A* search if that runs out of states.
+ *
+ * A level whose searches both run out of states is reported as inconclusive: the state limit says
+ * nothing about whether it can be won.  With --strict those fail the build too.
+ *
+ * Run with: java -cp out solver.LevelValidator [--strict] [levelFile] [maxDepth] [maxStates]
+ */
+public class LevelValidator {
+    public static void main(String[] args) {
+        boolean strict = false;
+        List<String> positional = new ArrayList<>();
+        for (String arg : args) {
+            if (arg.equals("--strict")) {
+                strict = true;
+            } else {
+                positional.add(arg);
+            }
+        }
+        String levelFile = positional.size() > 0 ? positional.get(0) : "resources/Levels/levels-all.bbiy";
+        int maxDepth = positional.size() > 1 ? Integer.parseInt(positional.get(1)) : 200;
+        int maxStates = positional.size() > 2 ? Integer.parseInt(positional.get(2)) : 5_000_000;
+
+        List<ParseLevel.LevelData> levels = new ParseLevel().parseLevels(levelFile);
+        if (levels.isEmpty()) {
+            System.err.println("No levels found in " + levelFile);
+            System.exit(1);
+        }
+
+        Solver solver = new Solver(maxDepth, maxStates);
+        int failed = 0;
+        int inconclusive = 0;
+        for (ParseLevel.LevelData level : levels) {
+            SolverResult result = solver.solve(level, Solver.Strategy.BREADTH_FIRST);
+            if (result.status == SolverResult.Status.GAVE_UP) {
+                // Too big to search exhaustively; a guided search may still find some solution.
+                result = solver.solve(level, Solver.Strategy.A_STAR);
+            }
+            System.out.printf("%-24s %-24s %4s moves %10d states %12.0f states/sec%n",
+                    level.name, result.status,
+                    result.moves == null ? "-" : String.valueOf(result.moves.size()),
+                    result.statesSeen, result.statesPerSecond());
+            switch (result.status) {
+                case SOLVED -> System.out.println("    " + result.movesString());
+                case GAVE_UP -> {
+                    System.out.println("    inconclusive: ran out of states before finding a solution");
+                    inconclusive++;
+                }
+                default -> failed++;
+            }
+        }
+        System.out.printf("%d levels: %d unwinnable, %d inconclusive%n", levels.size(), failed, inconclusive);
+        System.exit(failed > 0 || (strict && inconclusive > 0) ? 1 : 0);
+    }
+}
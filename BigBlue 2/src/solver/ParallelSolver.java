@@ -0,0 +1,202 @@
+package solver;
+
+import simulation.Direction;
+import simulation.Simulation;
+import simulation.TurnResult;
+import util.ParseLevel;
+
+import java.io.Serial;
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Multi-core breadth-first solver.  Each layer of the search is split across a ForkJoinPool; every
+ * worker thread plays moves on its own Simulation and the threads share a lock-free FingerprintSet
+ * of the states already reached.  solveAll runs several levels in the same pool at once.
+ *
+ * Only EntityManager's 64-bit state hash is kept, not the full keys, so two states whose hashes
+ * collide would be treated as one.  With a few million states that is vanishingly unlikely.  The
+ * hash ignores entity ids, so boards that differ only in which of two identical rocks is where are
+ * also (correctly) counted once.
+ */
+public class ParallelSolver implements AutoCloseable {
+    private static final Direction[] DIRECTIONS = Direction.values();
+    // Below this many states a layer is expanded on the calling thread rather than forked.
+    private static final int SPLIT_THRESHOLD = 64;
+
+    private final int maxDepth;
+    private final int maxStates;
+    private final ForkJoinPool pool;
+
+    public ParallelSolver(int maxDepth, int maxStates, int threads) {
+        this.maxDepth = maxDepth;
+        this.maxStates = maxStates;
+        this.pool = new ForkJoinPool(threads);
+    }
+
+    public SolverResult solve(ParseLevel.LevelData level) {
+        return pool.invoke(new LevelSearch(level));
+    }
+
+    /** Solves the levels concurrently, returning their results in the same order. */
+    public List<SolverResult> solveAll(List<ParseLevel.LevelData> levels) {
+        return pool.invoke(new RecursiveTask<List<SolverResult>>() {
+            @Override
+            protected List<SolverResult> compute() {
+                List<LevelSearch> searches = new ArrayList<>();
+                for (ParseLevel.LevelData level : levels) {
+                    searches.add(new LevelSearch(level));
+                }
+                invokeAll(searches);
+                List<SolverResult> results = new ArrayList<>();
+                for (LevelSearch search : searches) {
+                    results.add(search.join());
+                }
+                return results;
+            }
+        });
+    }
+
+    @Override
+    public void close() {
+        pool.shutdown();
+    }
+
+    /** A reached state.  The key is dropped once the state has been expanded; only the path back is kept. */
+    private static class Node {
+        final Node parent;
+        final int move;
+        long[] key;
+
+        Node(Node parent, int move, long[] key) {
+            this.parent = parent;
+            this.move = move;
+            this.key = key;
+        }
+    }
+
+    /** One thread's copy of the level to play moves on. */
+    private static class Worker {
+        final Simulation simulation = new Simulation();
+        final StateEncoder encoder;
+
+        Worker(ParseLevel.LevelData level) {
+            simulation.load(level);
+            encoder = new StateEncoder(simulation);
+        }
+    }
+
+    private class LevelSearch extends RecursiveTask<SolverResult> {
+        @Serial
+        private static final long serialVersionUID = 1L;
+
+        // Tasks are never serialized; these are transient only because they are not Serializable.
+        private final transient ParseLevel.LevelData level;
+        private final transient ThreadLocal<Worker> workers;
+        private final transient FingerprintSet seen = new FingerprintSet(maxStates);
+        private final AtomicReference<Node> solution = new AtomicReference<>();
+
+        LevelSearch(ParseLevel.LevelData level) {
+            this.level = level;
+            this.workers = ThreadLocal.withInitial(() -> new Worker(level));
+        }
+
+        @Override
+        protected SolverResult compute() {
+            long begin = System.nanoTime();
+            Worker worker = workers.get();
+            long[] rootKey = worker.encoder.encode();
+            if (worker.simulation.getConditionSystem().checkConditions() == 1) {
+                return new SolverResult(SolverResult.Status.SOLVED, new ArrayList<>(), 0, 1, System.nanoTime() - begin);
+            }
+            seen.add(worker.simulation.getEntityManager().stateHash());
+
+            List<Node> layer = List.of(new Node(null, -1, rootKey));
+            int expanded = 0;
+            for (int depth = 0; !layer.isEmpty(); depth++) {
+                if (depth >= maxDepth) {
+                    return new SolverResult(SolverResult.Status.NO_SOLUTION_WITHIN_DEPTH, null, expanded, seen.size(), System.nanoTime() - begin);
+                }
+                List<Node> next = new Expand(this, layer, 0, layer.size()).invoke();
+                expanded += layer.size();
+                Node winner = solution.get();
+                if (winner != null) {
+                    return new SolverResult(SolverResult.Status.SOLVED, path(winner), expanded, seen.size(), System.nanoTime() - begin);
+                }
+                if (seen.isFull()) {
+                    return new SolverResult(SolverResult.Status.GAVE_UP, null, expanded, seen.size(), System.nanoTime() - begin);
+                }
+                layer = next;
+            }
+            return new SolverResult(SolverResult.Status.UNSOLVABLE, null, expanded, seen.size(), System.nanoTime() - begin);
+        }
+    }
+
+    /** Expands layer[from, to) and returns the new states it reached. */
+    private static class Expand extends RecursiveTask<List<Node>> {
+        @Serial
+        private static final long serialVersionUID = 1L;
+
+        private final LevelSearch search;
+        private final transient List<Node> layer;
+        private final int from;
+        private final int to;
+
+        Expand(LevelSearch search, List<Node> layer, int from, int to) {
+            this.search = search;
+            this.layer = layer;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected List<Node> compute() {
+            if (to - from > SPLIT_THRESHOLD) {
+                int middle = (from + to) >>> 1;
+                Expand left = new Expand(search, layer, from, middle);
+                left.fork();
+                List<Node> right = new Expand(search, layer, middle, to).compute();
+                List<Node> result = left.join();
+                result.addAll(right);
+                return result;
+            }
+
+            Worker worker = search.workers.get();
+            Simulation simulation = worker.simulation;
+            List<Node> children = new ArrayList<>();
+            for (int i = from; i < to && search.solution.get() == null; i++) {
+                Node node = layer.get(i);
+                worker.encoder.restore(node.key);
+                node.key = null;
+                for (int d = 0; d < DIRECTIONS.length; d++) {
+                    int turnsBefore = simulation.getUndoJournal().getTurnCount();
+                    TurnResult result = simulation.step(DIRECTIONS[d]);
+                    if (result.isMoved()) {
+                        if (result.isWon()) {
+                            search.solution.compareAndSet(null, new Node(node, d, null));
+                        } else {
+                            if (search.seen.add(simulation.getEntityManager().stateHash())) {
+                                children.add(new Node(node, d, worker.encoder.encode()));
+                            }
+                        }
+                    }
+                    if (simulation.getUndoJournal().getTurnCount() > turnsBefore) {
+                        simulation.undo();
+                    }
+                }
+            }
+            return children;
+        }
+    }
+
+    private static List<Direction> path(Node node) {
+        List<Direction> path = new ArrayList<>();
+        for (Node n = node; n.parent != null; n = n.parent) {
+            path.add(DIRECTIONS[n.move]);
+        }
+        Collections.reverse(path);
+        return path;
+    }
+}
@@ -0,0 +1,225 @@
+package solver;
+
+import simulation.Direction;
+import simulation.Simulation;
+import simulation.TurnResult;
+import systems.Property;
+import systems.RuleSystem;
+import entities.EntityManager;
+import util.IntList;
+import util.ParseLevel;
+
+import java.util.*;
+
+/**
+ * Searches for the shortest sequence of moves that wins a level.  It plays the moves on its own
+ * Simulation, so the answer follows the same rules as the game: each state is restored onto the
+ * board, every direction is stepped and then undone, and the resulting boards are deduplicated
+ * through a StateTable.
+ *
+ * BREADTH_FIRST finds a shortest solution and can prove there is none within the move limit.
+ * A_STAR orders the search by moves so far plus the distance from the nearest You to the nearest
+ * Win; rules can make something Win without walking to it, so that distance is only a guide and
+ * A_STAR solutions may be longer than necessary.
+ */
+public class Solver {
+    public enum Strategy {
+        BREADTH_FIRST,
+        A_STAR
+    }
+
+    private static final Direction[] DIRECTIONS = Direction.values();
+
+    private final int maxDepth;
+    private final int maxStates;
+
+    public Solver(int maxDepth, int maxStates) {
+        this.maxDepth = maxDepth;
+        this.maxStates = maxStates;
+    }
+
+    public SolverResult solve(ParseLevel.LevelData level, Strategy strategy) {
+        Simulation simulation = new Simulation();
+        simulation.load(level);
+        StateEncoder encoder = new StateEncoder(simulation);
+        return search(simulation, encoder, encoder.encode(), strategy);
+    }
+
+    /** Solves the level from the position a game is currently in. */
+    public SolverResult solveFrom(Simulation game, Strategy strategy) {
+        Simulation simulation = new Simulation();
+        simulation.load(game.getLevel());
+        StateEncoder encoder = new StateEncoder(simulation);
+        return search(simulation, encoder, encoder.encode(game.getEntityManager()), strategy);
+    }
+
+    /** The next move towards a win from the game's current position, or null if none was found. */
+    public Direction hint(Simulation game) {
+        SolverResult result = solveFrom(game, Strategy.A_STAR);
+        return result.status == SolverResult.Status.SOLVED && !result.moves.isEmpty() ? result.moves.get(0) : null;
+    }
+
+    private SolverResult search(Simulation simulation, StateEncoder encoder, long[] rootKey, Strategy strategy) {
+        long begin = System.nanoTime();
+        encoder.restore(rootKey);
+        if (simulation.getConditionSystem().checkConditions() == 1) {
+            return new SolverResult(SolverResult.Status.SOLVED, new ArrayList<>(), 0, 1, System.nanoTime() - begin);
+        }
+
+        StateTable table = new StateTable();
+        IntList parents = new IntList();
+        IntList moves = new IntList();
+        IntList depths = new IntList();
+        Frontier frontier = strategy == Strategy.A_STAR ? new HeapFrontier() : new QueueFrontier();
+
+        int root = table.add(rootKey, simulation.getEntityManager().stateHash());
+        parents.add(-1);
+        moves.add(-1);
+        depths.add(0);
+        frontier.push(root, 0);
+
+        int expanded = 0;
+        boolean depthCut = false;
+        while (!frontier.isEmpty()) {
+            if (table.size() >= maxStates) {
+                return new SolverResult(SolverResult.Status.GAVE_UP, null, expanded, table.size(), System.nanoTime() - begin);
+            }
+            int node = frontier.pop();
+            int depth = depths.get(node);
+            if (depth >= maxDepth) {
+                depthCut = true;
+                continue;
+            }
+            encoder.restore(table.getKey(node));
+            expanded++;
+
+            for (int d = 0; d < DIRECTIONS.length; d++) {
+                int turnsBefore = simulation.getUndoJournal().getTurnCount();
+                TurnResult result = simulation.step(DIRECTIONS[d]);
+                if (result.isMoved()) {
+                    if (result.isWon()) {
+                        List<Direction> solution = path(parents, moves, node);
+                        solution.add(DIRECTIONS[d]);
+                        return new SolverResult(SolverResult.Status.SOLVED, solution, expanded, table.size(), System.nanoTime() - begin);
+                    }
+                    long[] key = encoder.encode();
+                    long hash = simulation.getEntityManager().stateHash();
+                    if (table.indexOf(key, hash) == -1) {
+                        int child = table.add(key, hash);
+                        parents.add(node);
+                        moves.add(d);
+                        depths.add(depth + 1);
+                        int priority = depth + 1;
+                        if (strategy == Strategy.A_STAR) {
+                            priority += distanceToWin(simulation);
+                        }
+                        frontier.push(child, priority);
+                    }
+                }
+                if (simulation.getUndoJournal().getTurnCount() > turnsBefore) {
+                    simulation.undo();
+                }
+            }
+        }
+
+        SolverResult.Status status;
+        if (!depthCut) {
+            status = SolverResult.Status.UNSOLVABLE;
+        } else if (strategy == Strategy.BREADTH_FIRST) {
+            status = SolverResult.Status.NO_SOLUTION_WITHIN_DEPTH;
+        } else {
+            status = SolverResult.Status.GAVE_UP;
+        }
+        return new SolverResult(status, null, expanded, table.size(), System.nanoTime() - begin);
+    }
+
+    private static List<Direction> path(IntList parents, IntList moves, int node) {
+        List<Direction> path = new ArrayList<>();
+        for (int n = node; parents.get(n) != -1; n = parents.get(n)) {
+            path.add(DIRECTIONS[moves.get(n)]);
+        }
+        Collections.reverse(path);
+        return path;
+    }
+
+    /** Manhattan distance from the nearest You to the nearest Win, or 0 if either is missing. */
+    private static int distanceToWin(Simulation simulation) {
+        EntityManager entityManager = simulation.getEntityManager();
+        RuleSystem ruleSystem = simulation.getRuleSystem();
+        int best = Integer.MAX_VALUE;
+        for (int you = 0; you < entityManager.getEntityCount(); you++) {
+            if (entityManager.isTextAt(you) || !entityManager.hasPositionAt(you)
+                    || !ruleSystem.hasProperty(entityManager.getNameIdAt(you), Property.YOU)) continue;
+            for (int win = 0; win < entityManager.getEntityCount(); win++) {
+                if (!entityManager.hasPositionAt(win)
+                        || !ruleSystem.hasProperty(entityManager.getNameIdAt(win), Property.WIN)) continue;
+                int distance = Math.abs(entityManager.getXAt(you) - entityManager.getXAt(win))
+                        + Math.abs(entityManager.getYAt(you) - entityManager.getYAt(win));
+                best = Math.min(best, distance);
+            }
+        }
+        return best == Integer.MAX_VALUE ? 0 : best;
+    }
+
+    private interface Frontier {
+        void push(int node, int priority);
+        int pop();
+        boolean isEmpty();
+    }
+
+    private static class QueueFrontier implements Frontier {
+        private final IntList queue = new IntList();
+        private int head = 0;
+
+        public void push(int node, int priority) {
+            queue.add(node);
+        }
+
+        public int pop() {
+            return queue.get(head++);
+        }
+
+        public boolean isEmpty() {
+            return head == queue.size();
+        }
+    }
+
+    /** Binary min-heap on priority, then on node number so equal priorities come out oldest first. */
+    private static class HeapFrontier implements Frontier {
+        private long[] heap = new long[1024];
+        private int size = 0;
+
+        public void push(int node, int priority) {
+            if (size == heap.length) {
+                heap = Arrays.copyOf(heap, size * 2);
+            }
+            long entry = ((long) priority << 32) | node;
+            int i = size++;
+            while (i > 0 && heap[(i - 1) / 2] > entry) {
+                heap[i] = heap[(i - 1) / 2];
+                i = (i - 1) / 2;
+            }
+            heap[i] = entry;
+        }
+
+        public int pop() {
+            int node = (int) heap[0];
+            long last = heap[--size];
+            int i = 0;
+            while (true) {
+                int child = 2 * i + 1;
+                if (child >= size) break;
+                if (child + 1 < size && heap[child + 1] < heap[child]) child++;
+                if (heap[child] >= last) break;
+                heap[i] = heap[child];
+                i = child;
+            }
+            heap[i] = last;
+            return node;
+        }
+
+        public boolean isEmpty() {
+            return size == 0;
+        }
+    }
+}
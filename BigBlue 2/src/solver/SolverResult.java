@@ -0,0 +1,45 @@
+package solver;
+
+import simulation.Direction;
+
+import java.util.List;
+
+public class SolverResult {
+    public enum Status {
+        /** moves wins the level. */
+        SOLVED,
+        /** Every reachable state was explored and none of them wins. */
+        UNSOLVABLE,
+        /** Every state within the move limit was explored by breadth-first search and none of them wins. */
+        NO_SOLUTION_WITHIN_DEPTH,
+        /** The search hit its state limit, or its move limit on a search that does not prove anything. */
+        GAVE_UP
+    }
+
+    public final Status status;
+    public final List<Direction> moves;
+    public final int statesExpanded;
+    public final int statesSeen;
+    public final long elapsedNanos;
+
+    SolverResult(Status status, List<Direction> moves, int statesExpanded, int statesSeen, long elapsedNanos) {
+        this.status = status;
+        this.moves = moves;
+        this.statesExpanded = statesExpanded;
+        this.statesSeen = statesSeen;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    public double statesPerSecond() {
+        return elapsedNanos == 0 ? 0 : statesSeen / (elapsedNanos / 1_000_000_000.0);
+    }
+
+    /** The moves as a string of U, D, L and R. */
+    public String movesString() {
+        StringBuilder builder = new StringBuilder();
+        for (Direction direction : moves) {
+            builder.append(direction.name().charAt(0));
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,110 @@
+package solver;
+
+import components.NameComponent;
+import components.PositionComponent;
+import entities.EntityManager;
+import simulation.Simulation;
+
+import java.util.Arrays;
+
+/**
+ * Converts the board of a Simulation to a compact, immutable key and back.  Entities are never
+ * created during play, so the level's starting entities cover every state.  A key only lists the
+ * entities that differ from the start, one long each: the entity id in the top 16 bits, then x, y
+ * and the name id in 16 bits apiece, or all ones below the id once the entity is destroyed.  The
+ * rules are not stored because they follow from where the text is.
+ */
+class StateEncoder {
+    private static final int OFFSET = 1 << 15;
+    private static final long FIELD = 0xFFFF;
+    private static final long DESTROYED = 0xFFFF_FFFF_FFFFL;
+
+    private final Simulation simulation;
+    private final EntityManager entityManager;
+    private final int entityCount;
+    private final long[] initial;
+    private final long[] target;
+    private final long[] buffer;
+
+    StateEncoder(Simulation simulation) {
+        this.simulation = simulation;
+        this.entityManager = simulation.getEntityManager();
+        this.entityCount = entityManager.getEntityCount();
+        if (entityCount > FIELD) {
+            throw new IllegalArgumentException("Level has too many entities to encode: " + entityCount);
+        }
+        this.initial = new long[entityCount];
+        for (int id = 0; id < entityCount; id++) {
+            initial[id] = pack(entityManager, id);
+        }
+        this.target = new long[entityCount];
+        this.buffer = new long[entityCount];
+    }
+
+    /** The key of the simulation's current board. */
+    long[] encode() {
+        return encode(entityManager);
+    }
+
+    /**
+     * The key of another board of the same level, e.g. the one a player is looking at.  Names are
+     * matched by spelling since the other EntityManager may have interned them in another order.
+     */
+    long[] encode(EntityManager source) {
+        int length = 0;
+        for (int id = 0; id < entityCount; id++) {
+            long packed = pack(source, id);
+            if (packed != initial[id]) {
+                buffer[length++] = ((long) id << 48) | packed;
+            }
+        }
+        return Arrays.copyOf(buffer, length);
+    }
+
+    /** Rearranges the simulation's board to match a key and brings the rules up to date. */
+    void restore(long[] key) {
+        System.arraycopy(initial, 0, target, 0, entityCount);
+        for (long entry : key) {
+            target[(int) (entry >>> 48)] = entry & DESTROYED;
+        }
+        for (int id = 0; id < entityCount; id++) {
+            long current = pack(entityManager, id);
+            long wanted = target[id];
+            if (current == wanted) continue;
+            if (wanted == DESTROYED) {
+                entityManager.destroyEntity(id);
+                continue;
+            }
+            int x = (int) ((wanted >>> 32) & FIELD) - OFFSET;
+            int y = (int) ((wanted >>> 16) & FIELD) - OFFSET;
+            String name = entityManager.getNameString((int) (wanted & FIELD));
+            if (current == DESTROYED) {
+                entityManager.reviveEntity(id);
+                entityManager.addComponent(id, new PositionComponent(x, y));
+                entityManager.addComponent(id, new NameComponent(name));
+                continue;
+            }
+            if ((current >>> 16) != (wanted >>> 16)) {
+                entityManager.setPosition(id, x, y);
+            }
+            if ((current & FIELD) != (wanted & FIELD)) {
+                entityManager.setName(id, name);
+            }
+        }
+        simulation.getRuleSystem().update();
+    }
+
+    private long pack(EntityManager source, int id) {
+        int slot = source.getSlot(id);
+        if (slot == -1 || !source.hasPositionAt(slot)) {
+            return DESTROYED;
+        }
+        int nameId = source.getNameIdAt(slot);
+        if (source != entityManager && nameId != -1) {
+            nameId = entityManager.findNameId(source.getNameString(nameId));
+        }
+        return ((source.getXAt(slot) + OFFSET) & FIELD) << 32
+                | ((source.getYAt(slot) + OFFSET) & FIELD) << 16
+                | (nameId & FIELD);
+    }
+}
@@ -0,0 +1,68 @@
+package solver;
+
+import java.util.Arrays;
+
+/**
+ * The transposition table: every state the solver has reached, numbered in the order they were
+ * added.  Lookups use open addressing over the states' 64-bit hashes and only compare keys when
+ * the hashes agree.
+ */
+class StateTable {
+    private long[][] keys = new long[1024][];
+    private long[] hashes = new long[1024];
+    private int size = 0;
+    // Node number + 1 for each bucket, 0 when empty.
+    private int[] buckets = new int[2048];
+
+    /** The node number of the state, or -1 if it has not been seen. */
+    int indexOf(long[] key, long hash) {
+        int mask = buckets.length - 1;
+        for (int i = (int) hash & mask; buckets[i] != 0; i = (i + 1) & mask) {
+            int node = buckets[i] - 1;
+            if (hashes[node] == hash && Arrays.equals(keys[node], key)) {
+                return node;
+            }
+        }
+        return -1;
+    }
+
+    /** Adds a state that indexOf has just reported missing, returning its node number. */
+    int add(long[] key, long hash) {
+        if (size == keys.length) {
+            keys = Arrays.copyOf(keys, size * 2);
+            hashes = Arrays.copyOf(hashes, size * 2);
+        }
+        if ((size + 1) * 2 > buckets.length) {
+            rehash(buckets.length * 2);
+        }
+        int node = size++;
+        keys[node] = key;
+        hashes[node] = hash;
+        insert(node);
+        return node;
+    }
+
+    long[] getKey(int node) {
+        return keys[node];
+    }
+
+    int size() {
+        return size;
+    }
+
+    private void insert(int node) {
+        int mask = buckets.length - 1;
+        int i = (int) hashes[node] & mask;
+        while (buckets[i] != 0) {
+            i = (i + 1) & mask;
+        }
+        buckets[i] = node + 1;
+    }
+
+    private void rehash(int capacity) {
+        buckets = new int[capacity];
+        for (int node = 0; node < size; node++) {
+            insert(node);
+        }
+    }
+}
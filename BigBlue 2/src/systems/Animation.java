@@ -1,53 +1,42 @@
 package systems;
 
+import edu.usu.graphics.Rectangle;
 import edu.usu.graphics.Texture;
-import javax.imageio.ImageIO;
-import java.awt.image.BufferedImage;
-import java.io.File;
 
+/**
+ * How a shared sprite sheet is played: its frames one after another, each shown for frameDelay
+ * milliseconds.  Nothing changes per sprite as it plays; the shader works out which frame is showing
+ * from one clock shared by every sprite, so they all animate in step.
+ */
 public class Animation implements Cloneable {
-    private Texture[] frames;
-    private int currentFrame = 0;
-    private long frameDelay;
-    private long lastFrameTime;
-    private File tempDir;
-
-    public Animation(String imagePath, int totalFrames, long frameDelay) {
-        try {
-            BufferedImage spriteSheet = ImageIO.read(new File(imagePath));
-            int frameWidth = spriteSheet.getWidth() / totalFrames;
-            int frameHeight = spriteSheet.getHeight();
-
-            tempDir = File.createTempFile("animation_frames_", "");
-            tempDir.delete();
-            tempDir.mkdir();
-
-            frames = new Texture[totalFrames];
-            for (int i = 0; i < totalFrames; i++) {
-                BufferedImage frameImage = spriteSheet.getSubimage(
-                        i * frameWidth, 0, frameWidth, frameHeight);
-                File frameFile = new File(tempDir, "frame_" + i + ".png");
-                ImageIO.write(frameImage, "png", frameFile);
-                frames[i] = new Texture(frameFile.getAbsolutePath());
-            }
-        } catch (Exception e) {
-            e.printStackTrace();
-        }
+    private final SpriteSheet sheet;
+    private final long frameDelay;
 
+    public Animation(SpriteSheet sheet, long frameDelay) {
+        this.sheet = sheet;
         this.frameDelay = frameDelay;
-        this.lastFrameTime = System.currentTimeMillis();
     }
 
-    public void update() {
-        long currentTime = System.currentTimeMillis();
-        if (currentTime - lastFrameTime >= frameDelay) {
-            currentFrame = (currentFrame + 1) % frames.length;
-            lastFrameTime = currentTime;
-        }
+    public Texture getTexture() {
+        return sheet.getTexture();
+    }
+
+    /** The first frame's rectangle within getTexture(), in pixels. */
+    public Rectangle getFirstFrame() {
+        return sheet.getFrame(0);
+    }
+
+    public int getFrameCount() {
+        return sheet.getFrameCount();
+    }
+
+    /** How far right each frame is from the one before, in pixels. */
+    public float getFrameStep() {
+        return sheet.getFrameWidth();
     }
 
-    public Texture getCurrentTexture() {
-        return frames[currentFrame];
+    public long getFrameDelay() {
+        return frameDelay;
     }
 
     @Override
@@ -59,4 +48,4 @@ public class Animation implements Cloneable {
             throw new RuntimeException("Cloning not supported", e);
         }
     }
-}
\ No newline at end of file
+}
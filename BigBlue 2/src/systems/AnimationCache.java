@@ -0,0 +1,86 @@
+package systems;
+
+import edu.usu.graphics.Texture;
+
+import java.io.File;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Uploads each sprite sheet once and shares it between every Animation that plays it, so an
+ * Animation itself only carries a reference to its sheet and its frame delay; which frame is showing
+ * is worked out on the GPU from the shared clock.  Like TextureCache, sheets are reference counted
+ * by path and their textures deleted on the last release.
+ *
+ * Given a TextureAtlas, sheets packed into it are handed out as regions of its pages and only
+ * sheets the atlas left out are loaded from disk.
+ */
+public class AnimationCache {
+    private static class Entry {
+        final SpriteSheet sheet;
+        final boolean owned;
+        int references;
+
+        Entry(SpriteSheet sheet, boolean owned) {
+            this.sheet = sheet;
+            this.owned = owned;
+        }
+    }
+
+    private final TextureAtlas atlas;
+    private final Map<String, Entry> entries = new HashMap<>();
+
+    public AnimationCache() {
+        this(null);
+    }
+
+    public AnimationCache(TextureAtlas atlas) {
+        this.atlas = atlas;
+    }
+
+    /** The sheet at path, a horizontal strip of totalFrames equal cells. */
+    public SpriteSheet acquire(String path, int totalFrames) {
+        Entry entry = entries.get(path);
+        if (entry == null) {
+            int spriteId = atlas == null ? -1 : atlas.getSpriteId(new File(path).getName());
+            if (spriteId != -1) {
+                entry = new Entry(new SpriteSheet(atlas.getTexture(spriteId), atlas.getRegion(spriteId), totalFrames), false);
+            } else {
+                entry = new Entry(new SpriteSheet(new Texture(path), totalFrames), true);
+            }
+            entries.put(path, entry);
+        }
+        entry.references++;
+        return entry.sheet;
+    }
+
+    public void release(String path) {
+        Entry entry = entries.get(path);
+        if (entry == null) {
+            throw new IllegalStateException("Animation released more often than acquired: " + path);
+        }
+        if (--entry.references == 0) {
+            cleanup(entry);
+            entries.remove(path);
+        }
+    }
+
+    /** The number of distinct sprite sheets currently loaded. */
+    public int size() {
+        return entries.size();
+    }
+
+    /** Deletes every sheet, held or not.  Atlas pages are left to the atlas. */
+    public void cleanup() {
+        for (Entry entry : entries.values()) {
+            cleanup(entry);
+        }
+        entries.clear();
+    }
+
+    private static void cleanup(Entry entry) {
+        if (entry.owned) {
+            entry.sheet.getTexture().cleanup();
+        }
+    }
+}
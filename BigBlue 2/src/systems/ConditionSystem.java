@@ -1,103 +1,106 @@
 package systems;
 
-import components.RuleComponent;
 import entities.EntityManager;
-import components.PositionComponent;
+import util.IntList;
 
-import java.util.*;
+import java.util.function.IntConsumer;
 
 public class ConditionSystem {
+    private static final String[] DESTRUCTIBLE_NAMES = {
+            "Wall", "Rock", "Flag", "BigBlue", "Floor", "Grass", "Water", "Lava"};
+
     private final EntityManager entityManager;
     private final RuleSystem ruleSystem;
-    private static final Set<String> DESTRUCTIBLE_NAMES = new HashSet<>(Arrays.asList(
-            "Wall", "Rock", "Flag", "BigBlue", "Floor", "Grass", "Water", "Lava"));
+    private final IntList tileEntities = new IntList();
+    private final IntConsumer collectTileEntity = tileEntities::add;
+    private final IntList youEntities = new IntList();
+    // Indexed by name id: whether an entity of that name can be killed.  Names stay interned for
+    // the life of the EntityManager, so this is built once.
+    private final boolean[] destructible;
 
     public ConditionSystem(EntityManager entityManager, RuleSystem ruleSystem) {
         this.entityManager = entityManager;
         this.ruleSystem = ruleSystem;
+        int[] nameIds = new int[DESTRUCTIBLE_NAMES.length];
+        int maxNameId = 0;
+        for (int i = 0; i < nameIds.length; i++) {
+            nameIds[i] = entityManager.internName(DESTRUCTIBLE_NAMES[i]);
+            maxNameId = Math.max(maxNameId, nameIds[i]);
+        }
+        destructible = new boolean[maxNameId + 1];
+        for (int nameId : nameIds) {
+            destructible[nameId] = true;
+        }
     }
 
     public int checkConditions() {
-        Set<Integer> youEntities = getYouEntities();
+        getYouEntities(youEntities);
         if (youEntities.isEmpty()) {
             return -1;
         }
 
-
-        for (int youId : youEntities) {
-            if (entityManager.getComponent(youId, RuleComponent.class) != null) {
-                continue;
-            }
-            String youName = entityManager.getEntityName(youId);
-            if (!DESTRUCTIBLE_NAMES.contains(youName)) {
+        boolean killed = false;
+        for (int i = 0; i < youEntities.size(); i++) {
+            int youId = youEntities.get(i);
+            int nameId = entityManager.getNameId(youId);
+            if (nameId < 0 || nameId >= destructible.length || !destructible[nameId]) {
                 continue;
             }
-            PositionComponent youPos = entityManager.getComponent(youId, PositionComponent.class);
-            List<Integer> entitiesAtPos = getEntitiesAt(youPos.x, youPos.y);
-            for (int id : entitiesAtPos) {
-                if (id == youId) continue;
-                String name = entityManager.getEntityName(id);
-                Set<String> props = RuleSystem.activeRules.getOrDefault(name, new HashSet<>());
-                if (props.contains("Kill") || props.contains("Defeat")) {
-                    entityManager.destroyEntity(youId);
-                    break;
-                }
+            if (anyAt(youId, Property.KILL, false)) {
+                entityManager.destroyEntity(youId);
+                killed = true;
             }
         }
 
-
-        youEntities = getYouEntities();
-        if (youEntities.isEmpty()) {
-            return -1;
+        if (killed) {
+            getYouEntities(youEntities);
+            if (youEntities.isEmpty()) {
+                return -1;
+            }
         }
 
-
-        Set<Integer> winEntities = getWinEntities();
-        for (int youId : youEntities) {
-            PositionComponent youPos = entityManager.getComponent(youId, PositionComponent.class);
-            for (int winId : winEntities) {
-                PositionComponent winPos = entityManager.getComponent(winId, PositionComponent.class);
-                if (youPos != null && winPos != null && youPos.x == winPos.x && youPos.y == winPos.y) {
-                    return 1;
-                }
+        for (int i = 0; i < youEntities.size(); i++) {
+            int youSlot = entityManager.getSlot(youEntities.get(i));
+            if (entityManager.hasPositionAt(youSlot) && anyAt(youEntities.get(i), Property.WIN, true)) {
+                return 1;
             }
         }
         return 0;
     }
 
-    public Set<Integer> getYouEntities() {
-        Set<Integer> youEntities = new HashSet<>();
-        for (int id : entityManager.getAllEntityIds()) {
-            if (entityManager.getComponent(id, RuleComponent.class) != null) continue;
-            String name = entityManager.getEntityName(id);
-            Set<String> props = RuleSystem.activeRules.getOrDefault(name, new HashSet<>());
-            if (props.contains("You")) {
-                youEntities.add(id);
+    /** Replaces the contents of ids with every entity that is You, in slot order. */
+    public void getYouEntities(IntList ids) {
+        ids.clear();
+        for (int slot = 0; slot < entityManager.getEntityCount(); slot++) {
+            if (entityManager.isTextAt(slot)) continue;
+            if (ruleSystem.hasProperty(entityManager.getNameIdAt(slot), Property.YOU)) {
+                ids.add(entityManager.getEntityIdAt(slot));
             }
         }
-        return youEntities;
     }
 
-    private List<Integer> getEntitiesAt(int x, int y) {
-        List<Integer> entities = new ArrayList<>();
-        for (int id : entityManager.getAllEntityIds()) {
-            PositionComponent pos = entityManager.getComponent(id, PositionComponent.class);
-            if (pos != null && pos.x == x && pos.y == y) {
-                entities.add(id);
+    /** Replaces the contents of ids with every entity that is Win, in slot order. */
+    public void getWinEntities(IntList ids) {
+        ids.clear();
+        for (int slot = 0; slot < entityManager.getEntityCount(); slot++) {
+            if (ruleSystem.hasProperty(entityManager.getNameIdAt(slot), Property.WIN)) {
+                ids.add(entityManager.getEntityIdAt(slot));
             }
         }
-        return entities;
     }
 
-    public Set<Integer> getWinEntities() {
-        Set<Integer> winEntities = new HashSet<>();
-        for (int id : entityManager.getAllEntityIds()) {
-            String name = entityManager.getEntityName(id);
-            Set<String> props = RuleSystem.activeRules.getOrDefault(name, new HashSet<>());
-            if (props.contains("Win")) {
-                winEntities.add(id);
+    // Whether anything else on the entity's tile has the property, or the entity itself too if
+    // includeSelf is set.
+    private boolean anyAt(int entityId, Property property, boolean includeSelf) {
+        tileEntities.clear();
+        entityManager.forEachAt(entityManager.getX(entityId), entityManager.getY(entityId), collectTileEntity);
+        for (int i = 0; i < tileEntities.size(); i++) {
+            int id = tileEntities.get(i);
+            if (id == entityId && !includeSelf) continue;
+            if (ruleSystem.hasProperty(entityManager.getNameId(id), property)) {
+                return true;
             }
         }
-        return winEntities;
+        return false;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,153 @@
+package systems;
+
+import edu.usu.graphics.Texture;
+
+import java.util.Random;
+
+/**
+ * One kind of particle effect, as read from resources/effects/particles.json.  An effect is a number
+ * of bursts, each a number of particles flying out from a point, or outwards from the edges of a
+ * tile.  Every burst picks its own speed, size and so on around the template's mean, and every
+ * particle in it varies around the burst's by the jitter.
+ *
+ * Speeds, accelerations and sizes are in screen units, sizes optionally in tiles, and lifetimes in
+ * seconds.  Colors are picked from the [min, max] range of each channel, per particle or per burst.
+ */
+public class EmitterTemplate {
+    public enum Shape {
+        // From the middle of the area, in every direction.
+        POINT,
+        // From a random point on the edge of the area, outwards.
+        TILE_EDGE
+    }
+
+    /** A value that varies by deviation from burst to burst and by jitter within a burst. */
+    public static class Distribution {
+        float mean;
+        float deviation;
+        float jitter;
+
+        float sampleBurst(Random random) {
+            return deviation == 0 ? mean : (float) random.nextGaussian(mean, deviation);
+        }
+
+        float sampleParticle(Random random, float burst) {
+            return jitter == 0 ? burst : (float) random.nextGaussian(burst, jitter);
+        }
+    }
+
+    String texture;
+    Shape shape = Shape.POINT;
+    Distribution bursts;
+    // How far burst centers stray from the middle, as a fraction of the area.
+    float burstSpread;
+    // How far outside the tile TILE_EDGE particles start; negative is inside.
+    float edgeOffset;
+    Distribution count;
+    Distribution speed;
+    Distribution acceleration;
+    Distribution lifetime;
+    // Missing for particles of the manager's default size.
+    Distribution size;
+    boolean sizeInTiles;
+    boolean colorPerBurst;
+    float[] red = {1, 1};
+    float[] green = {1, 1};
+    float[] blue = {1, 1};
+
+    // Loaded when the template is, and shared by every particle it spawns.
+    transient Texture loadedTexture;
+
+    public String getTexture() {
+        return texture;
+    }
+
+    /**
+     * Spawns the effect into the pool over the area with its lower left corner at (left, bottom).
+     * tileWidth scales sizes given in tiles, and particles without a size get defaultSize.
+     */
+    public void emit(ParticlePool pool, Random random, float left, float bottom, float width, float height,
+                     float tileWidth, float defaultSize) {
+        int burstCount = bursts == null ? 1 : Math.round(bursts.sampleBurst(random));
+        float sizeScale = sizeInTiles ? tileWidth : 1;
+        for (int burst = 0; burst < burstCount; burst++) {
+            float centerX = left + width / 2 + (float) random.nextGaussian() * burstSpread * width;
+            float centerY = bottom + height / 2 + (float) random.nextGaussian() * burstSpread * height;
+            float burstSpeed = sampleBurst(speed, random);
+            float burstAcceleration = sampleBurst(acceleration, random);
+            float burstLifetime = sampleBurst(lifetime, random);
+            // In screen units, scaled before it is made positive so the 0.01 floor is in screen units too.
+            float burstSize = size == null ? defaultSize : positive(size.sampleBurst(random) * sizeScale);
+            float r = pick(red, random);
+            float g = pick(green, random);
+            float b = pick(blue, random);
+
+            int particles = (int) count.sampleBurst(random);
+            for (int i = 0; i < particles; i++) {
+                float x = centerX;
+                float y = centerY;
+                double angle;
+                if (shape == Shape.TILE_EDGE) {
+                    float edgeLeft = left - edgeOffset;
+                    float edgeBottom = bottom - edgeOffset;
+                    float edgeRight = left + width + edgeOffset;
+                    float edgeTop = bottom + height + edgeOffset;
+                    angle = random.nextGaussian(Math.PI / 2, Math.PI / 16f);
+                    switch (random.nextInt(4)) {
+                        case 0 -> {
+                            x = edgeLeft + random.nextFloat() * (edgeRight - edgeLeft);
+                            y = edgeBottom;
+                            angle += Math.PI;
+                        }
+                        case 1 -> {
+                            x = edgeLeft + random.nextFloat() * (edgeRight - edgeLeft);
+                            y = edgeTop;
+                        }
+                        case 2 -> {
+                            x = edgeLeft;
+                            y = edgeBottom + random.nextFloat() * (edgeTop - edgeBottom);
+                            angle += Math.PI / 2;
+                        }
+                        default -> {
+                            x = edgeRight;
+                            y = edgeBottom + random.nextFloat() * (edgeTop - edgeBottom);
+                            angle -= Math.PI / 2;
+                        }
+                    }
+                } else {
+                    angle = random.nextDouble(0, 2 * Math.PI);
+                }
+                float cos = (float) Math.cos(angle);
+                float sin = (float) Math.sin(angle);
+                float particleSpeed = sampleParticle(speed, random, burstSpeed);
+                float particleAcceleration = sampleParticle(acceleration, random, burstAcceleration);
+                float particleSize = size == null ? defaultSize
+                        : positive(size.sampleParticle(random, burstSize / sizeScale) * sizeScale);
+                if (!colorPerBurst) {
+                    r = pick(red, random);
+                    g = pick(green, random);
+                    b = pick(blue, random);
+                }
+                pool.spawn(x, y, cos * particleSpeed, sin * particleSpeed, cos * particleAcceleration, sin * particleAcceleration,
+                        r, g, b, 1, sampleParticle(lifetime, random, burstLifetime), particleSize, loadedTexture);
+            }
+        }
+    }
+
+    private static float sampleBurst(Distribution distribution, Random random) {
+        return distribution == null ? 0 : distribution.sampleBurst(random);
+    }
+
+    private static float sampleParticle(Distribution distribution, Random random, float burst) {
+        return distribution == null ? burst : distribution.sampleParticle(random, burst);
+    }
+
+    // Sizes drawn below zero are flipped, and kept from being too small to see.
+    private static float positive(float size) {
+        return size < 0 ? -size + 0.01f : size;
+    }
+
+    private static float pick(float[] range, Random random) {
+        return range[0] + random.nextFloat() * (range[1] - range[0]);
+    }
+}
@@ -1,144 +1,149 @@
 package systems;
 
-import components.PositionComponent;
-import components.RuleComponent;
 import entities.EntityManager;
-import java.util.*;
+import util.IntList;
+
+import java.util.function.IntConsumer;
 
 public class MovementSystem {
     private final EntityManager entityManager;
-    private ParticleManager particleManager;
-    private static final Set<String> DESTRUCTIBLE_NAMES = new HashSet<>(Arrays.asList(
-            "Wall", "Rock", "Flag", "BigBlue", "Floor", "Grass", "Water", "Lava"
-    ));
-
-    public MovementSystem(EntityManager entityManager) {
+    private final RuleSystem ruleSystem;
+    private final int hedgeNameId;
+    // Tile occupants for every level of the push chain, stacked so recursion never allocates.
+    private final IntList tileEntities = new IntList();
+    private final IntConsumer collectTileEntity = tileEntities::add;
+    // What the moves since resetCounts() pushed, for reporting.
+    private int pushedCount;
+    private int pushDepth;
+    private int longestPush;
+
+    public MovementSystem(EntityManager entityManager, RuleSystem ruleSystem) {
         this.entityManager = entityManager;
+        this.ruleSystem = ruleSystem;
+        this.hedgeNameId = entityManager.internName("Hedge");
     }
 
-    public void setParticleManager(ParticleManager particleManager) {
-        this.particleManager = particleManager;
-    }
-
-    public boolean tryMove(int startX, int startY, int dx, int dy, Set<String> pushableNames, Set<String> youNames) {
+    public boolean tryMove(int startX, int startY, int dx, int dy) {
         int targetX = startX + dx;
         int targetY = startY + dy;
 
-        List<Integer> entitiesAtTarget = getEntitiesAt(targetX, targetY);
-        for (int id : entitiesAtTarget) {
-            String name = entityManager.getEntityName(id);
-            if (name.equals("Hedge")) {
+        int start = collectEntitiesAt(targetX, targetY);
+        try {
+            return resolveTile(start, dx, dy);
+        } finally {
+            tileEntities.truncate(start);
+        }
+    }
+
+    private boolean tryPush(int entityId, int dx, int dy) {
+        int slot = entityManager.getSlot(entityId);
+        if (slot == -1 || !entityManager.hasPositionAt(slot)) return false;
+
+        int nextX = entityManager.getXAt(slot) + dx;
+        int nextY = entityManager.getYAt(slot) + dy;
+        int start = collectEntitiesAt(nextX, nextY);
+        longestPush = Math.max(longestPush, ++pushDepth);
+        try {
+            if (!resolveTile(start, dx, dy)) {
                 return false;
             }
-            RuleComponent ruleComp = entityManager.getComponent(id, RuleComponent.class);
-            if (ruleComp == null) {
-                Set<String> props = RuleSystem.activeRules.get(name);
-                if ((props != null && props.contains("Stop") && !pushableNames.contains(name))) {
-                    return false;
-                } else if (youNames.contains(name)) {
-                    PositionComponent pos = entityManager.getComponent(id, PositionComponent.class);
-                    if (!tryMove(pos.x, pos.y, dx, dy, pushableNames, youNames)) {
-                        return false;
-                    }
-                }
-            }
+        } finally {
+            tileEntities.truncate(start);
+            pushDepth--;
         }
-        for (int id : entitiesAtTarget) {
-            if (isPushable(id, pushableNames)) {
-                if (!tryPush(id, dx, dy, pushableNames, youNames)) {
-                    return false;
-                }
-            }
+        entityManager.setPosition(entityId, nextX, nextY);
+        pushedCount++;
+        if (!entityManager.isText(entityId)) {
+            checkAndApplySink(entityId, nextX, nextY);
         }
         return true;
     }
 
-    private boolean tryPush(int entityId, int dx, int dy, Set<String> pushableNames, Set<String> youNames) {
-        PositionComponent pos = entityManager.getComponent(entityId, PositionComponent.class);
-        if (pos == null) return false;
-
-        int nextX = pos.x + dx;
-        int nextY = pos.y + dy;
-        List<Integer> entitiesAtNext = getEntitiesAt(nextX, nextY);
-
-        for (int id : entitiesAtNext) {
-            String name = entityManager.getEntityName(id);
-            if (name.equals("Hedge")) {
+    // Checks the occupants collected from index start onward: fails on anything that stops the move,
+    // otherwise pushes whatever is pushable out of the way.
+    private boolean resolveTile(int start, int dx, int dy) {
+        int end = tileEntities.size();
+        for (int i = start; i < end; i++) {
+            int id = tileEntities.get(i);
+            int nameId = entityManager.getNameId(id);
+            if (nameId == hedgeNameId) {
                 return false;
             }
-            RuleComponent ruleComp = entityManager.getComponent(id, RuleComponent.class);
-            if (ruleComp == null) {
-                Set<String> props = RuleSystem.activeRules.get(name);
-                if (props != null && props.contains("Stop") && !pushableNames.contains(name)) {
+            if (!entityManager.isText(id)) {
+                long props = ruleSystem.getPropertyMask(nameId);
+                if ((props & Property.STOP.bit) != 0 && (props & Property.PUSH.bit) == 0) {
                     return false;
-                } else if (youNames.contains(name)) {
-                    PositionComponent youPos = entityManager.getComponent(id, PositionComponent.class);
-                    if (!tryMove(youPos.x, youPos.y, dx, dy, pushableNames, youNames)) {
+                } else if ((props & Property.YOU.bit) != 0) {
+                    if (!tryMove(entityManager.getX(id), entityManager.getY(id), dx, dy)) {
                         return false;
                     }
                 }
             }
         }
-
-        for (int id : entitiesAtNext) {
-            if (isPushable(id, pushableNames)) {
-                if (!tryPush(id, dx, dy, pushableNames, youNames)) {
+        for (int i = start; i < end; i++) {
+            int id = tileEntities.get(i);
+            if (isPushable(id)) {
+                if (!tryPush(id, dx, dy)) {
                     return false;
                 }
             }
         }
-        pos.x = nextX;
-        pos.y = nextY;
-        if (entityManager.getComponent(entityId, RuleComponent.class) == null) {
-            checkAndApplySink(entityId, nextX, nextY);
-        }
         return true;
     }
 
-    private List<Integer> getEntitiesAt(int x, int y) {
-        List<Integer> entities = new ArrayList<>();
-        for (int id : entityManager.getAllEntityIds()) {
-            PositionComponent pos = entityManager.getComponent(id, PositionComponent.class);
-            if (pos != null && pos.x == x && pos.y == y) {
-                entities.add(id);
-            }
-        }
-        return entities;
+    private int collectEntitiesAt(int x, int y) {
+        int start = tileEntities.size();
+        entityManager.forEachAt(x, y, collectTileEntity);
+        return start;
     }
 
-    public boolean isPushable(int entityId, Set<String> pushableNames) {
-        if (entityManager.getComponent(entityId, RuleComponent.class) != null) {
+    /** Entities pushed since resetCounts(). */
+    public int getPushedCount() {
+        return pushedCount;
+    }
+
+    /** The most entities pushed in a row by one move since resetCounts(). */
+    public int getLongestPush() {
+        return longestPush;
+    }
+
+    public void resetCounts() {
+        pushedCount = 0;
+        longestPush = 0;
+    }
+
+    public boolean isPushable(int entityId) {
+        if (entityManager.isText(entityId)) {
             return true;
         }
-        String name = entityManager.getEntityName(entityId);
-        return pushableNames.contains(name);
+        return ruleSystem.hasProperty(entityManager.getNameId(entityId), Property.PUSH);
     }
 
     public void checkAndApplySink(int moverId, int x, int y) {
-        List<Integer> entities = getEntitiesAt(x, y);
         boolean hasSink = false;
         int sinkId = -1;
 
-
-        for (int id : entities) {
-            if (entityManager.getComponent(id, RuleComponent.class) != null) {
+        // The tile's occupants come in no particular order, so take the Sink with the lowest id, the
+        // one an ascending scan of every entity would find first.
+        int start = collectEntitiesAt(x, y);
+        for (int i = start; i < tileEntities.size(); i++) {
+            int id = tileEntities.get(i);
+            if (entityManager.isText(id)) {
                 continue;
             }
-            String name = entityManager.getEntityName(id);
-            Set<String> props = RuleSystem.activeRules.getOrDefault(name, new HashSet<>());
-            if (props.contains("Sink")) {
+            if ((!hasSink || id < sinkId) && ruleSystem.hasProperty(entityManager.getNameId(id), Property.SINK)) {
                 hasSink = true;
                 sinkId = id;
-                break;
             }
         }
+        tileEntities.truncate(start);
 
 
         if (hasSink && moverId != sinkId) {
-            if (entityManager.getComponent(moverId, RuleComponent.class) == null) {
+            if (!entityManager.isText(moverId)) {
                 entityManager.destroyEntity(moverId);
             }
-            if (sinkId != -1 && entityManager.getComponent(sinkId, RuleComponent.class) == null) {
+            if (sinkId != -1 && !entityManager.isText(sinkId)) {
                 entityManager.destroyEntity(sinkId);
             }
         }
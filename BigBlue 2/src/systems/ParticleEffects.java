@@ -0,0 +1,45 @@
+package systems;
+
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Map;
+
+/**
+ * Every emitter template, read from a JSON file of templates by name when the game starts, with the
+ * textures they use loaded once and shared.  Spawning an effect afterwards reads no files.
+ */
+public class ParticleEffects {
+    private static final String IMAGES = "resources/images/";
+
+    private final Map<String, EmitterTemplate> templates;
+    private final TextureCache textureCache = new TextureCache();
+
+    public ParticleEffects(String path) {
+        try (Reader reader = new FileReader(path)) {
+            templates = new Gson().fromJson(reader, new TypeToken<Map<String, EmitterTemplate>>() {}.getType());
+        } catch (IOException e) {
+            throw new RuntimeException("Particle effects [" + path + "] not loaded", e);
+        }
+        for (EmitterTemplate template : templates.values()) {
+            if (template.texture != null) {
+                template.loadedTexture = textureCache.acquire(IMAGES + template.texture);
+            }
+        }
+    }
+
+    public EmitterTemplate get(String name) {
+        EmitterTemplate template = templates.get(name);
+        if (template == null) {
+            throw new IllegalArgumentException("No particle effect named " + name);
+        }
+        return template;
+    }
+
+    public void cleanup() {
+        textureCache.cleanup();
+    }
+}
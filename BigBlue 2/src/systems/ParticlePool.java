@@ -0,0 +1,213 @@
+package systems;
+
+import edu.usu.graphics.Graphics2D;
+import edu.usu.graphics.Texture;
+
+import java.io.Serial;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Every live particle, a field to an array, in a pool of fixed capacity.  Particles are kept packed
+ * at the front: one that dies is replaced by the last, so updating and drawing them walks the
+ * arrays in order and nothing is allocated once the pool is made.  A particle spawned while the pool
+ * is full is dropped.
+ *
+ * A particle fades out over its lifetime, from its starting alpha down to nothing.
+ *
+ * Big pools are updated in chunks across the common ForkJoinPool: every chunk moves its particles
+ * on, and then the dead are swapped out on the calling thread.  Smaller ones, or any pool on a
+ * single core, are updated in one pass on the calling thread, where the fork would cost more than
+ * it saves.
+ */
+public class ParticlePool {
+    // Particles are drawn above the board.
+    private static final float Z = 0.9f;
+    // Pools with fewer live particles than this are updated on the calling thread.
+    private static final int PARALLEL_THRESHOLD = 32 * 1024;
+    // Particles a chunk moves on before it is not split any further.
+    private static final int CHUNK_SIZE = 8 * 1024;
+
+    private final float[] x;
+    private final float[] y;
+    private final float[] vx;
+    private final float[] vy;
+    private final float[] ax;
+    private final float[] ay;
+    private final float[] life;
+    private final float[] maxLife;
+    private final float[] size;
+    private final float[] r;
+    private final float[] g;
+    private final float[] b;
+    private final float[] a;
+    private final Texture[] texture;
+    private int count = 0;
+
+    public ParticlePool(int capacity) {
+        x = new float[capacity];
+        y = new float[capacity];
+        vx = new float[capacity];
+        vy = new float[capacity];
+        ax = new float[capacity];
+        ay = new float[capacity];
+        life = new float[capacity];
+        maxLife = new float[capacity];
+        size = new float[capacity];
+        r = new float[capacity];
+        g = new float[capacity];
+        b = new float[capacity];
+        a = new float[capacity];
+        texture = new Texture[capacity];
+    }
+
+    /** Adds a particle, or returns false if the pool is full.  A null texture draws a solid square. */
+    public boolean spawn(float x, float y, float vx, float vy, float ax, float ay,
+                         float r, float g, float b, float a, float lifetime, float size, Texture texture) {
+        if (count == this.x.length) {
+            return false;
+        }
+        int i = count++;
+        this.x[i] = x;
+        this.y[i] = y;
+        this.vx[i] = vx;
+        this.vy[i] = vy;
+        this.ax[i] = ax;
+        this.ay[i] = ay;
+        this.r[i] = r;
+        this.g[i] = g;
+        this.b[i] = b;
+        this.a[i] = a;
+        this.life[i] = lifetime;
+        this.maxLife[i] = lifetime;
+        this.size[i] = size;
+        this.texture[i] = texture;
+        return true;
+    }
+
+    /** Moves every particle on by deltaTime and removes those that die, in parallel if worthwhile. */
+    public void update(double deltaTime) {
+        if (count >= PARALLEL_THRESHOLD && ForkJoinPool.getCommonPoolParallelism() > 1) {
+            updateParallel(deltaTime, ForkJoinPool.commonPool());
+        } else {
+            updateScalar(deltaTime);
+        }
+    }
+
+    /** update() on the calling thread, in one pass. */
+    public void updateScalar(double deltaTime) {
+        float dt = (float) deltaTime;
+        int i = 0;
+        while (i < count) {
+            vx[i] += ax[i] * dt;
+            vy[i] += ay[i] * dt;
+            x[i] += vx[i] * dt;
+            y[i] += vy[i] * dt;
+            life[i] -= dt;
+            if (life[i] > 0) {
+                i++;
+            } else {
+                // The last particle takes this one's place and is updated next.
+                moveLast(i);
+            }
+        }
+    }
+
+    /** update() with the particles moved on in chunks across the fork-join pool. */
+    public void updateParallel(double deltaTime, ForkJoinPool forkJoinPool) {
+        forkJoinPool.invoke(new Integrate(0, count, (float) deltaTime));
+        int i = 0;
+        while (i < count) {
+            if (life[i] > 0) {
+                i++;
+            } else {
+                moveLast(i);
+            }
+        }
+    }
+
+    public void render(Graphics2D graphics) {
+        render(graphics, 0);
+    }
+
+    /**
+     * Draws every particle moved on by its velocity for ahead seconds, so particles keep moving
+     * smoothly when frames are drawn between updates.
+     */
+    public void render(Graphics2D graphics, float ahead) {
+        for (int i = 0; i < count; i++) {
+            float halfSize = size[i] / 2;
+            graphics.draw(texture[i], x[i] + vx[i] * ahead - halfSize, y[i] + vy[i] * ahead - halfSize, size[i], size[i], Z,
+                    r[i], g[i], b[i], a[i] * Math.max(0, life[i] - ahead) / maxLife[i]);
+        }
+    }
+
+    public int size() {
+        return count;
+    }
+
+    public int capacity() {
+        return x.length;
+    }
+
+    public boolean isEmpty() {
+        return count == 0;
+    }
+
+    public void clear() {
+        Arrays.fill(texture, 0, count, null);
+        count = 0;
+    }
+
+    /** Moves particles [from, to) on, splitting the range in two until it is a chunk. */
+    private class Integrate extends RecursiveAction {
+        @Serial
+        private static final long serialVersionUID = 1L;
+
+        private final int from;
+        private final int to;
+        private final float dt;
+
+        Integrate(int from, int to, float dt) {
+            this.from = from;
+            this.to = to;
+            this.dt = dt;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > CHUNK_SIZE) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new Integrate(from, middle, dt), new Integrate(middle, to, dt));
+                return;
+            }
+            for (int i = from; i < to; i++) {
+                vx[i] += ax[i] * dt;
+                vy[i] += ay[i] * dt;
+                x[i] += vx[i] * dt;
+                y[i] += vy[i] * dt;
+                life[i] -= dt;
+            }
+        }
+    }
+
+    private void moveLast(int i) {
+        int last = --count;
+        x[i] = x[last];
+        y[i] = y[last];
+        vx[i] = vx[last];
+        vy[i] = vy[last];
+        ax[i] = ax[last];
+        ay[i] = ay[last];
+        life[i] = life[last];
+        maxLife[i] = maxLife[last];
+        size[i] = size[last];
+        r[i] = r[last];
+        g[i] = g[last];
+        b[i] = b[last];
+        a[i] = a[last];
+        texture[i] = texture[last];
+        texture[last] = null;
+    }
+}
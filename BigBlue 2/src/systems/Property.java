@@ -0,0 +1,29 @@
+package systems;
+
+/** The properties a rule can give a noun.  Each one owns a single bit of RuleSystem's property masks. */
+public enum Property {
+    PUSH("Push"),
+    STOP("Stop"),
+    WIN("Win"),
+    YOU("You"),
+    SINK("Sink"),
+    KILL("Kill");
+
+    public final String word;
+    public final long bit;
+
+    Property(String word) {
+        this.word = word;
+        this.bit = 1L << ordinal();
+    }
+
+    /** The property spelled by a text block, or null if the word is not a property. */
+    public static Property fromWord(String word) {
+        for (Property property : values()) {
+            if (property.word.equals(word)) {
+                return property;
+            }
+        }
+        return null;
+    }
+}
@@ -1,84 +1,271 @@
 package systems;
 
-import components.PositionComponent;
 import components.RuleComponent;
 import entities.EntityManager;
+import util.IntList;
 
 import java.util.*;
+import java.util.function.IntConsumer;
 
+/**
+ * Reads "Noun Is Property" and "Noun Is Noun" sentences off the board.  Nouns are the interned
+ * name ids from EntityManager, and each noun's active properties are kept as a bitmask so a
+ * property check is a single bit test.
+ *
+ * Rules are remembered per row and per column.  A turn only re-reads the lines crossing a tile a
+ * text block moved onto or off of, and patches the masks and transformations with the difference.
+ */
 public class RuleSystem {
+    private static final int NO_NAME = -1;
+    private static final int NO_SLOT = -1;
+    private static final int NO_ENTITY = -1;
+    private static final Property[] PROPERTIES = Property.values();
+
     private final EntityManager entityManager;
-    public static Map<String, Set<String>> activeRules = new HashMap<>();
-    public Map<String, String> transformations = new HashMap<>();
+    private long[] propertyMask = new long[16];
+    private int[] propertyCount = new int[16 * PROPERTIES.length];
+    private int[] transformations = new int[16];
+    private int[] visitedStamp = new int[16];
+    private int stamp = 0;
+    private final int isWordId;
+
+    // Rows come first (line y), then columns (line height + x).  Each line keeps the rules it
+    // currently spells as (subject, value, order) triples; value is the target noun for a
+    // transformation or ~ordinal for a property, and order is the position the original full
+    // scan would have found the rule at, so the last "A Is X" wins just like it used to.
+    private int width = 0;
+    private int height = 0;
+    private IntList[] lineRules = new IntList[0];
+    private int[] lineStamp = new int[0];
+    private int lineVisit = 0;
+    private int[] lineSlots = new int[0];
+    private final IntList transformRules = new IntList();
+    private final IntList dirtyLines = new IntList();
+    private boolean changed;
+
+    private int topTextId;
+    private final IntConsumer keepTopTextId = this::keepTopTextId;
 
     public RuleSystem(EntityManager entityManager) {
         this.entityManager = entityManager;
+        this.isWordId = entityManager.internName("Is");
+        Arrays.fill(transformations, NO_NAME);
     }
 
-    public void update() {
-        activeRules.clear();
-        transformations.clear();
-        Map<String, RuleComponent.Type> wordGrid[][] = new HashMap[20][20];
-
-        for (int id : entityManager.getAllEntityIds()) {
-            RuleComponent rule = entityManager.getComponent(id, RuleComponent.class);
-            PositionComponent pos = entityManager.getComponent(id, PositionComponent.class);
-            if (rule != null && pos != null) {
-                if (wordGrid[pos.y][pos.x] == null) {
-                    wordGrid[pos.y][pos.x] = new HashMap<>();
-                }
-                wordGrid[pos.y][pos.x].put(rule.word, rule.type);
+    /**
+     * Brings the rules up to date with the board.  Returns true if any property or transformation
+     * changed, in which case entities may need to be transformed.
+     */
+    public boolean update() {
+        changed = false;
+        if (entityManager.isTextLayoutReset()
+                || width != entityManager.getGridWidth() || height != entityManager.getGridHeight()) {
+            rebuild();
+        } else {
+            IntList tiles = entityManager.getChangedTextTiles();
+            lineVisit++;
+            dirtyLines.clear();
+            for (int i = 0; i < tiles.size(); i += 2) {
+                markDirty(tiles.get(i + 1));
+                markDirty(height + tiles.get(i));
+            }
+            for (int i = 0; i < dirtyLines.size(); i++) {
+                parseLine(dirtyLines.get(i));
             }
         }
+        entityManager.clearTextChanges();
+        return changed;
+    }
 
-        for (int y = 0; y < 20; y++) {
-            for (int x = 0; x < 20; x++) {
-                checkAndAddRule(wordGrid, x, y, 1, 0);
-                checkAndAddRule(wordGrid, x, y, 0, 1);
-            }
+    /** The number of rules the board currently spells. */
+    public int getRuleCount() {
+        int count = 0;
+        for (IntList rules : lineRules) {
+            count += rules.size() / 3;
+        }
+        return count;
+    }
+
+    public boolean hasProperty(int nameId, Property property) {
+        return (getPropertyMask(nameId) & property.bit) != 0;
+    }
+
+    public long getPropertyMask(int nameId) {
+        return nameId >= 0 && nameId < propertyMask.length ? propertyMask[nameId] : 0;
+    }
+
+    /** Follows "A Is B", "B Is C" chains to the name an entity called {@code nameId} should become. */
+    public int getFinalTransformation(int nameId) {
+        stamp++;
+        int current = nameId;
+        while (current >= 0 && current < transformations.length
+                && transformations[current] != NO_NAME && visitedStamp[current] != stamp) {
+            visitedStamp[current] = stamp;
+            current = transformations[current];
         }
+        return current;
     }
 
     public String getFinalTransformation(String name) {
-        Set<String> visited = new HashSet<>();
-        String currentName = name;
-        while (transformations.containsKey(currentName) && !visited.contains(currentName)) {
-            visited.add(currentName);
-            currentName = transformations.get(currentName);
+        int nameId = entityManager.findNameId(name);
+        return nameId == NO_NAME ? name : entityManager.getNameString(getFinalTransformation(nameId));
+    }
+
+    private void rebuild() {
+        width = entityManager.getGridWidth();
+        height = entityManager.getGridHeight();
+        int lines = width + height;
+        if (lineRules.length != lines) {
+            lineRules = new IntList[lines];
+            for (int line = 0; line < lines; line++) {
+                lineRules[line] = new IntList();
+            }
+            lineStamp = new int[lines];
+        } else {
+            for (IntList rules : lineRules) {
+                rules.clear();
+            }
+        }
+        lineSlots = new int[Math.max(width, height)];
+        Arrays.fill(propertyMask, 0);
+        Arrays.fill(propertyCount, 0);
+        Arrays.fill(transformations, NO_NAME);
+        transformRules.clear();
+        for (int line = 0; line < lines; line++) {
+            parseLine(line);
         }
-        return currentName;
+        changed = true;
     }
 
-    private Map.Entry<String, RuleComponent.Type> getWordEntry(Map<String, RuleComponent.Type>[][] grid, int x, int y) {
-        if (x < 0 || x >= 20 || y < 0 || y >= 20 || grid[y][x] == null || grid[y][x].isEmpty()) {
-            return null;
+    private void markDirty(int line) {
+        if (lineStamp[line] != lineVisit) {
+            lineStamp[line] = lineVisit;
+            dirtyLines.add(line);
         }
-        return grid[y][x].entrySet().iterator().next();
     }
 
-    private void checkAndAddRule(Map<String, RuleComponent.Type>[][] grid, int x, int y, int dx, int dy) {
-        int targetX = x + 2 * dx;
-        int targetY = y + 2 * dy;
+    /** Drops the rules a line used to spell and reads it again. */
+    private void parseLine(int line) {
+        IntList rules = lineRules[line];
+        for (int i = 0; i < rules.size(); i += 3) {
+            removeRule(rules.get(i), rules.get(i + 1), rules.get(i + 2));
+        }
+        rules.clear();
 
-        if (targetX < 0 || targetX >= 20 || targetY < 0 || targetY >= 20) return;
+        boolean row = line < height;
+        int length = row ? width : height;
+        for (int i = 0; i < length; i++) {
+            lineSlots[i] = row ? getWordSlot(i, line) : getWordSlot(line - height, i);
+        }
 
-        Map.Entry<String, RuleComponent.Type> subjEntry = getWordEntry(grid, x, y);
-        Map.Entry<String, RuleComponent.Type> isEntry = getWordEntry(grid, x + dx, y + dy);
-        Map.Entry<String, RuleComponent.Type> thirdEntry = getWordEntry(grid, targetX, targetY);
+        for (int i = 0; i + 2 < length; i++) {
+            int subjSlot = lineSlots[i];
+            int isSlot = lineSlots[i + 1];
+            int thirdSlot = lineSlots[i + 2];
+            if (subjSlot == NO_SLOT || isSlot == NO_SLOT || thirdSlot == NO_SLOT) continue;
+            if (entityManager.getWordTypeAt(subjSlot) != RuleComponent.Type.SUBJECT
+                    || entityManager.getWordIdAt(isSlot) != isWordId
+                    || entityManager.getWordTypeAt(isSlot) != RuleComponent.Type.OPERATOR) continue;
 
-        if (subjEntry != null && isEntry != null && thirdEntry != null) {
-            if (subjEntry.getValue() == RuleComponent.Type.SUBJECT &&
-                    "Is".equals(isEntry.getKey()) &&
-                    isEntry.getValue() == RuleComponent.Type.OPERATOR) {
+            int subject = entityManager.getWordIdAt(subjSlot);
+            int third = entityManager.getWordIdAt(thirdSlot);
+            int value;
+            if (entityManager.getWordTypeAt(thirdSlot) == RuleComponent.Type.PROPERTY) {
+                Property property = Property.fromWord(entityManager.getNameString(third));
+                if (property == null) continue;
+                value = ~property.ordinal();
+            } else if (entityManager.getWordTypeAt(thirdSlot) == RuleComponent.Type.SUBJECT) {
+                value = third;
+            } else {
+                continue;
+            }
+            int order = row ? (line * width + i) * 2 : (i * width + line - height) * 2 + 1;
+            rules.add(subject);
+            rules.add(value);
+            rules.add(order);
+            addRule(subject, value, order);
+        }
+    }
 
-                if (thirdEntry.getValue() == RuleComponent.Type.PROPERTY) {
-                    String property = thirdEntry.getKey();
-                    activeRules.putIfAbsent(subjEntry.getKey(), new HashSet<>());
-                    activeRules.get(subjEntry.getKey()).add(property);
-                } else if (thirdEntry.getValue() == RuleComponent.Type.SUBJECT) {
-                    transformations.put(subjEntry.getKey(), thirdEntry.getKey());
+    private void addRule(int subject, int value, int order) {
+        ensureNounCapacity(subject);
+        if (value < 0) {
+            Property property = PROPERTIES[~value];
+            if (propertyCount[subject * PROPERTIES.length + property.ordinal()]++ == 0) {
+                propertyMask[subject] |= property.bit;
+                changed = true;
+            }
+        } else {
+            transformRules.add(subject);
+            transformRules.add(value);
+            transformRules.add(order);
+            refreshTransformation(subject);
+        }
+    }
+
+    private void removeRule(int subject, int value, int order) {
+        if (value < 0) {
+            Property property = PROPERTIES[~value];
+            if (--propertyCount[subject * PROPERTIES.length + property.ordinal()] == 0) {
+                propertyMask[subject] &= ~property.bit;
+                changed = true;
+            }
+        } else {
+            for (int i = 0; i < transformRules.size(); i += 3) {
+                if (transformRules.get(i + 2) == order) {
+                    int last = transformRules.size() - 3;
+                    transformRules.set(i, transformRules.get(last));
+                    transformRules.set(i + 1, transformRules.get(last + 1));
+                    transformRules.set(i + 2, transformRules.get(last + 2));
+                    transformRules.truncate(last);
+                    break;
                 }
             }
+            refreshTransformation(subject);
+        }
+    }
+
+    /** Picks the latest-ordered "subject Is Noun" rule still on the board. */
+    private void refreshTransformation(int subject) {
+        int target = NO_NAME;
+        int bestOrder = -1;
+        for (int i = 0; i < transformRules.size(); i += 3) {
+            if (transformRules.get(i) == subject && transformRules.get(i + 2) > bestOrder) {
+                bestOrder = transformRules.get(i + 2);
+                target = transformRules.get(i + 1);
+            }
+        }
+        if (transformations[subject] != target) {
+            transformations[subject] = target;
+            changed = true;
+        }
+    }
+
+    /**
+     * The slot of the text block read at a tile.  When words are stacked the newest entity wins,
+     * which keeps the answer independent of slot order so a partial re-read agrees with a full one.
+     */
+    private int getWordSlot(int x, int y) {
+        topTextId = NO_ENTITY;
+        entityManager.forEachAt(x, y, keepTopTextId);
+        return topTextId == NO_ENTITY ? NO_SLOT : entityManager.getSlot(topTextId);
+    }
+
+    private void keepTopTextId(int entityId) {
+        if (entityId > topTextId && entityManager.isText(entityId)) {
+            topTextId = entityId;
+        }
+    }
+
+    private void ensureNounCapacity(int nameId) {
+        if (nameId >= propertyMask.length) {
+            int oldLength = propertyMask.length;
+            int newLength = Math.max(nameId + 1, oldLength * 2);
+            propertyMask = Arrays.copyOf(propertyMask, newLength);
+            propertyCount = Arrays.copyOf(propertyCount, newLength * PROPERTIES.length);
+            transformations = Arrays.copyOf(transformations, newLength);
+            visitedStamp = Arrays.copyOf(visitedStamp, newLength);
+            Arrays.fill(transformations, oldLength, newLength, NO_NAME);
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,47 @@
+package systems;
+
+import edu.usu.graphics.Rectangle;
+import edu.usu.graphics.Texture;
+
+/**
+ * A sprite sheet uploaded as one texture, or one region of an atlas page, with the pixel rectangle of
+ * each frame in it.  Frames are equal cells in a horizontal strip, and are drawn as sub-images of the
+ * texture rather than being cut out into textures of their own.
+ */
+public class SpriteSheet {
+    private final Texture texture;
+    private final Rectangle[] frames;
+    private final float frameWidth;
+
+    public SpriteSheet(Texture texture, int totalFrames) {
+        this(texture, new Rectangle(0, 0, texture.getWidth(), texture.getHeight()), totalFrames);
+    }
+
+    /** The sheet occupying region (in pixels) of texture. */
+    public SpriteSheet(Texture texture, Rectangle region, int totalFrames) {
+        this.texture = texture;
+        this.frames = new Rectangle[totalFrames];
+        this.frameWidth = region.width / totalFrames;
+        for (int i = 0; i < totalFrames; i++) {
+            // Inset by half a texel so linear filtering never samples the neighbouring frame.
+            frames[i] = new Rectangle(region.left + i * frameWidth + 0.5f, region.top + 0.5f, frameWidth - 1, region.height - 1);
+        }
+    }
+
+    public Texture getTexture() {
+        return texture;
+    }
+
+    public Rectangle getFrame(int index) {
+        return frames[index];
+    }
+
+    /** The width of a frame's cell, i.e. how far apart the frames are, in pixels. */
+    public float getFrameWidth() {
+        return frameWidth;
+    }
+
+    public int getFrameCount() {
+        return frames.length;
+    }
+}
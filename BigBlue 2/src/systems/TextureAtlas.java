@@ -0,0 +1,171 @@
+package systems;
+
+import edu.usu.graphics.Rectangle;
+import edu.usu.graphics.Texture;
+import org.lwjgl.system.MemoryStack;
+import org.lwjgl.system.MemoryUtil;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.lwjgl.opengl.GL32.GL_MAX_TEXTURE_SIZE;
+import static org.lwjgl.opengl.GL32.glGetInteger;
+import static org.lwjgl.stb.STBImage.*;
+
+/**
+ * Every PNG in a directory packed into as few textures ("pages") as fit, so sprites drawn one after
+ * another share a texture and Graphics2D can draw them in one call.  Sprites are looked up by file
+ * name, case-insensitively, and drawn as the sub-image getRegion() gives within getTexture().
+ *
+ * Images are packed tallest first into rows across the page.  Each is surrounded by a border copied
+ * from its own edge so filtering never picks up the neighbouring sprite, even from the smaller mip
+ * levels a big image like BigBlue's is drawn from.  An image too big for a page is left out and has
+ * to be loaded on its own.
+ */
+public class TextureAtlas {
+    // Enough for four mip levels, i.e. sprites drawn at down to a sixteenth of their size.
+    private static final int PADDING = 16;
+    private static final int MAX_PAGE_SIZE = 2048;
+
+    private record Image(String name, int width, int height, ByteBuffer pixels) {
+    }
+
+    private final List<Texture> pages = new ArrayList<>();
+    private final Map<String, Integer> spriteIds = new HashMap<>();
+    private final List<Texture> spriteTextures = new ArrayList<>();
+    private final List<Rectangle> spriteRegions = new ArrayList<>();
+
+    public TextureAtlas(String directory) {
+        File[] files = new File(directory).listFiles((_, name) -> name.toLowerCase().endsWith(".png"));
+        if (files == null) {
+            throw new RuntimeException("Image directory [" + directory + "] not found");
+        }
+        List<Image> images = new ArrayList<>();
+        for (File file : files) {
+            images.add(load(file));
+        }
+        images.sort((a, b) -> b.height - a.height);
+
+        int pageSize = Math.min(MAX_PAGE_SIZE, glGetInteger(GL_MAX_TEXTURE_SIZE));
+        List<Image> page = new ArrayList<>();
+        List<int[]> placements = new ArrayList<>();
+        int x = 0;
+        int shelfTop = 0;
+        int shelfHeight = 0;
+        for (Image image : images) {
+            int cellWidth = image.width + 2 * PADDING;
+            int cellHeight = image.height + 2 * PADDING;
+            if (cellWidth > pageSize || cellHeight > pageSize) {
+                continue;
+            }
+            if (x + cellWidth > pageSize) {
+                shelfTop += shelfHeight;
+                x = 0;
+                shelfHeight = 0;
+            }
+            if (shelfTop + cellHeight > pageSize) {
+                addPage(page, placements);
+                page.clear();
+                placements.clear();
+                x = 0;
+                shelfTop = 0;
+                shelfHeight = 0;
+            }
+            page.add(image);
+            placements.add(new int[] {x + PADDING, shelfTop + PADDING});
+            x += cellWidth;
+            shelfHeight = Math.max(shelfHeight, cellHeight);
+        }
+        if (!page.isEmpty()) {
+            addPage(page, placements);
+        }
+
+        for (Image image : images) {
+            stbi_image_free(image.pixels);
+        }
+    }
+
+    /** The id of the sprite loaded from the named file, or -1 if it is not in the atlas. */
+    public int getSpriteId(String fileName) {
+        Integer id = spriteIds.get(fileName.toLowerCase());
+        return id == null ? -1 : id;
+    }
+
+    /** The page holding the sprite. */
+    public Texture getTexture(int spriteId) {
+        return spriteTextures.get(spriteId);
+    }
+
+    /** Where the sprite sits in its page, in pixels. */
+    public Rectangle getRegion(int spriteId) {
+        return spriteRegions.get(spriteId);
+    }
+
+    public int getSpriteCount() {
+        return spriteRegions.size();
+    }
+
+    public int getPageCount() {
+        return pages.size();
+    }
+
+    public void cleanup() {
+        for (Texture page : pages) {
+            page.cleanup();
+        }
+        pages.clear();
+    }
+
+    private void addPage(List<Image> images, List<int[]> placements) {
+        int width = 0;
+        int height = 0;
+        for (int i = 0; i < images.size(); i++) {
+            width = Math.max(width, placements.get(i)[0] + images.get(i).width + PADDING);
+            height = Math.max(height, placements.get(i)[1] + images.get(i).height + PADDING);
+        }
+        ByteBuffer pixels = MemoryUtil.memCalloc(width * height * 4);
+        for (int i = 0; i < images.size(); i++) {
+            copy(images.get(i), pixels, width, placements.get(i)[0], placements.get(i)[1]);
+        }
+        Texture texture = new Texture(width, height, pixels);
+        MemoryUtil.memFree(pixels);
+        pages.add(texture);
+
+        for (int i = 0; i < images.size(); i++) {
+            Image image = images.get(i);
+            spriteIds.put(image.name, spriteRegions.size());
+            spriteTextures.add(texture);
+            spriteRegions.add(new Rectangle(placements.get(i)[0], placements.get(i)[1], image.width, image.height));
+        }
+    }
+
+    /** Copies the image into the page at (left, top), repeating its edge pixels out into the padding. */
+    private static void copy(Image image, ByteBuffer page, int pageWidth, int left, int top) {
+        for (int dy = -PADDING; dy < image.height + PADDING; dy++) {
+            int sy = Math.clamp(dy, 0, image.height - 1);
+            for (int dx = -PADDING; dx < image.width + PADDING; dx++) {
+                int sx = Math.clamp(dx, 0, image.width - 1);
+                page.putInt(((top + dy) * pageWidth + left + dx) * 4, image.pixels.getInt((sy * image.width + sx) * 4));
+            }
+        }
+    }
+
+    private static Image load(File file) {
+        try (MemoryStack stack = MemoryStack.stackPush()) {
+            IntBuffer w = stack.mallocInt(1);
+            IntBuffer h = stack.mallocInt(1);
+            IntBuffer channels = stack.mallocInt(1);
+
+            ByteBuffer pixels = stbi_load(file.getPath(), w, h, channels, 4);
+            if (pixels == null) {
+                throw new RuntimeException("Image file [" + file.getPath() + "] not loaded: " + stbi_failure_reason());
+            }
+            return new Image(file.getName().toLowerCase(), w.get(), h.get(), pixels);
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package systems;
+
+import edu.usu.graphics.Texture;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Loads each image once no matter how many sprites show it.  Callers acquire a texture by path and
+ * release it when they are done; the GL texture is deleted when the last holder releases it.
+ */
+public class TextureCache {
+    private static class Entry {
+        final Texture texture;
+        int references;
+
+        Entry(Texture texture) {
+            this.texture = texture;
+        }
+    }
+
+    private final Map<String, Entry> entries = new HashMap<>();
+
+    /** The texture for the image at path, loading it if nobody holds it yet. */
+    public Texture acquire(String path) {
+        Entry entry = entries.get(path);
+        if (entry == null) {
+            entry = new Entry(new Texture(path));
+            entries.put(path, entry);
+        }
+        entry.references++;
+        return entry.texture;
+    }
+
+    public void release(String path) {
+        Entry entry = entries.get(path);
+        if (entry == null) {
+            throw new IllegalStateException("Texture released more often than acquired: " + path);
+        }
+        if (--entry.references == 0) {
+            entry.texture.cleanup();
+            entries.remove(path);
+        }
+    }
+
+    /** The number of distinct textures currently loaded. */
+    public int size() {
+        return entries.size();
+    }
+
+    /** Deletes every texture, held or not. */
+    public void cleanup() {
+        for (Entry entry : entries.values()) {
+            entry.texture.cleanup();
+        }
+        entries.clear();
+    }
+}
@@ -0,0 +1,78 @@
+package util;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Holds a loop to a frame rate without keeping a core busy.  Each frame is due one period after the
+ * last was due, not after it finished, so the rate does not drift with how long frames take; a loop
+ * that falls more than a frame behind starts counting again from now instead of rushing to catch up.
+ *
+ * Waiting sleeps for most of the time left, then yields, then spins for the last moments, because a
+ * sleep can wake late.  How late the thread has been waking is tracked, and sleeps are cut short by
+ * that much.  A rate of 0 leaves the loop uncapped.
+ */
+public final class FramePacer {
+    // Closer to the deadline than this, spin instead of yielding.
+    private static final long SPIN_NANOS = 100_000;
+    // The least a sleep is cut short by, however punctually the thread has been waking.
+    private static final long MIN_OVERSLEEP_NANOS = 500_000;
+    // The most a sleep is cut short by.  Past this, yielding out the rest of the wait costs more CPU
+    // than the occasional late frame is worth.
+    private static final long MAX_OVERSLEEP_NANOS = 3_000_000;
+
+    private long period;
+    private long deadline;
+    private long oversleep = 1_000_000;
+
+    public FramePacer(double framesPerSecond) {
+        setFrameRate(framesPerSecond);
+    }
+
+    /** Frames per second to wait for, or 0 to not wait at all. */
+    public void setFrameRate(double framesPerSecond) {
+        period = framesPerSecond > 0 ? Math.round(1_000_000_000 / framesPerSecond) : 0;
+        reset();
+    }
+
+    public double getFrameRate() {
+        return period == 0 ? 0 : 1_000_000_000.0 / period;
+    }
+
+    public boolean isUncapped() {
+        return period == 0;
+    }
+
+    /** Makes the next frame due one period from now. */
+    public void reset() {
+        deadline = System.nanoTime();
+    }
+
+    /** Returns when the next frame is due. */
+    public void waitForNextFrame() {
+        if (period == 0) {
+            return;
+        }
+        deadline += period;
+        long remaining = deadline - System.nanoTime();
+        if (remaining < -period) {
+            deadline = System.nanoTime();
+            return;
+        }
+        while (remaining > 0) {
+            if (remaining > oversleep + SPIN_NANOS) {
+                long sleep = remaining - oversleep;
+                long before = System.nanoTime();
+                LockSupport.parkNanos(sleep);
+                long late = System.nanoTime() - before - sleep;
+                // Follow late wakes at once, and punctual ones slowly.
+                oversleep = late > oversleep ? late : oversleep - (oversleep - late) / 16;
+                oversleep = Math.clamp(oversleep, MIN_OVERSLEEP_NANOS, MAX_OVERSLEEP_NANOS);
+            } else if (remaining > SPIN_NANOS) {
+                Thread.yield();
+            } else {
+                Thread.onSpinWait();
+            }
+            remaining = deadline - System.nanoTime();
+        }
+    }
+}
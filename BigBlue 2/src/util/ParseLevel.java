@@ -4,7 +4,7 @@ import java.io.*;
 import java.util.*;
 
 public class  ParseLevel {
-    public class LevelData {
+    public static class LevelData {
         public String name;
         public int width;
         public int height;